@@ -0,0 +1,318 @@
+/***********************************************************************
+ * Checker - Checks wirings against the internal method, a port of the Checker in
+ * internal_method/internal_method.h for whole libraries of wirings.
+ *
+ * SUMMARY:
+ * For a wiring perm[] of n contacts the diff of contact i is (perm[i] - i) mod n, and
+ * diffUsed[d] is the number of contacts with diff d.  The internal method wants every
+ * diff used once, which for even n cannot be, so the ideal is one diff unused, one
+ * used twice and the rest once.  The discrepancy is, as in the C++ version,
+ *
+ *  sum over k of | number of diffs used k times - ideal number used k times |
+ *
+ * 0 for a wiring made by the internal method.  A wiring is also checked to be a
+ * permutation.  The C++ tables stop at n - 1 times, so it leaves out the diff of a
+ * plain shift, used n times, and for n = 2 the ideal diff used twice; here both are
+ * counted, and those wirings score one worse.
+ *
+ * Only the number of diffs used 0, 1, 2 and more than 2 times matters, because the
+ * ideal never has a diff used more than twice.  So the difference table is three
+ * bit sets of the diffs, a long each, of those used at least once, twice and three
+ * times, and the counts are their bit counts.  That is a few instructions a contact,
+ * for wirings of up to 64 contacts, such as the 26 contact rotors of Rotor.WIRING or
+ * the 10 contact ones of Rotor.INDEXWIRING.  A library is checked on a parallel
+ * stream and reported sorted by discrepancy, the worst last.
+ *
+ * A library file has a wiring to a line, as letters from A ("YCHLQ..."), as digits
+ * from 0 ("7591482630"), or as numbers separated by commas, optionally in braces as
+ * printed by InternalMethod.  Blank lines and lines starting with // are skipped.  A
+ * line that is not a wiring of 1 to 64 contacts is reported as a bad permutation,
+ * after all the others, rather than stopping the check.
+ *
+ * Usage:
+ *  java Checker [library]
+ *
+ * With no library, Rotor.WIRING and Rotor.INDEXWIRING are checked.
+ *
+ ***********************************************************************/
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class Checker {
+    static final int MAX_SIZE = 64;
+
+    final int wiring[];                 // the contacts, from 0
+    final String line;                  // the line read, if it is not a wiring
+    boolean permutationOk = true;
+    int unused, once, twice, more;      // the number of diffs used 0, 1, 2, >2 times
+    int score;                          // the discrepancy
+
+
+/***********************************************************************
+ * Checker - Constructor
+ *
+ * SUMMARY:
+ * wiring holds the contacts from base, 'A' for a row of Rotor.WIRING, 0 for
+ * Rotor.INDEXWIRING or InternalMethod.
+ *
+ ***********************************************************************/
+    public Checker(int wiring[], int base) {
+        int n = wiring.length;
+        long seen = 0, atLeast1 = 0, atLeast2 = 0, atLeast3 = 0, bit;
+        int i, c, ideal0, ideal1, ideal2;
+
+        if ((n < 1) || (n > MAX_SIZE)) {
+            throw new IllegalArgumentException("wiring of " + n + " contacts");
+            }
+        this.wiring = new int[n];
+        line = null;
+        for (i = 0; i < n; i++) {
+            c = wiring[i] - base;
+            this.wiring[i] = c;
+            if ((c < 0) || (c >= n) || ((seen & (1L << c)) != 0)) {
+                permutationOk = false;
+                c = ((c % n) + n) % n;
+                }
+            seen |= 1L << c;
+            bit = 1L << ((c - i + n) % n);
+            atLeast3 |= atLeast2 & bit;
+            atLeast2 |= atLeast1 & bit;
+            atLeast1 |= bit;
+            }
+        unused = n - Long.bitCount(atLeast1);
+        once = Long.bitCount(atLeast1 & ~atLeast2);
+        twice = Long.bitCount(atLeast2 & ~atLeast3);
+        more = Long.bitCount(atLeast3);
+
+        if (n % 2 == 0) {
+            ideal0 = 1;
+            ideal1 = n - 2;
+            ideal2 = 1;
+            }
+        else {
+            ideal0 = 0;
+            ideal1 = n;
+            ideal2 = 0;
+            }
+        score = Math.abs(unused - ideal0) + Math.abs(once - ideal1)
+            + Math.abs(twice - ideal2) + more;
+        }
+
+    // A line of a library that is not a wiring that can be checked.
+    Checker(String line) {
+        this.line = line;
+        wiring = new int[0];
+        permutationOk = false;
+        score = Integer.MAX_VALUE;
+        }
+
+    public boolean malformed() {
+        return(line != null);
+        }
+
+    public boolean permutationOk() {
+        return(permutationOk);
+        }
+
+    public int score() {
+        return(score);
+        }
+
+/***********************************************************************
+ * wiringString - The wiring as read: digits up to 10 contacts, letters up to 26,
+ * numbers separated by commas beyond that or if a contact is out of range, whatever
+ * the base it was given from.  The line itself if it is not a wiring.
+ ***********************************************************************/
+    public String wiringString() {
+        StringBuilder out = new StringBuilder();
+        int n = wiring.length, i;
+        boolean commas = (n > 26);
+
+        if (line != null) {
+            return(line);
+            }
+        for (i = 0; i < n; i++) {
+            if ((wiring[i] < 0) || (wiring[i] >= n)) {
+                commas = true;
+                }
+            }
+        for (i = 0; i < n; i++) {
+            if (commas) {
+                out.append((i == 0) ? "" : ",").append(wiring[i]);
+                }
+            else if (n <= 10) {
+                out.append((char) ('0' + wiring[i]));
+                }
+            else {
+                out.append((char) ('A' + wiring[i]));
+                }
+            }
+        return(out.toString());
+        }
+
+    public String toString() {
+        if (line != null) {
+            return("not a wiring of 1 to " + MAX_SIZE + " contacts");
+            }
+        return("permutation is " + (permutationOk ? "OK" : "Bad") + ", discrepancy: "
+            + score + ", diffs used 0/1/2/more times " + unused + "/" + once + "/" + twice
+            + "/" + more);
+        }
+
+/***********************************************************************
+ * checkAll - Checks a library in parallel, returned sorted by discrepancy.
+ *
+ * SUMMARY:
+ * A bad permutation sorts after every good one, and a line that is not a wiring
+ * after every bad one.  Wirings with the same discrepancy keep their order in the
+ * library.  The lines are as read() returns them.
+ *
+ ***********************************************************************/
+    public static Checker[] checkAll(int wirings[][], int base) {
+
+        return(sort(IntStream.range(0, wirings.length).parallel()
+            .mapToObj(w -> check(wirings[w], base)).toArray(Checker[]::new)));
+        }
+
+    public static Checker[] checkAll(String lines[]) {
+
+        return(sort(IntStream.range(0, lines.length).parallel()
+            .mapToObj(l -> check(lines[l])).toArray(Checker[]::new)));
+        }
+
+    static Checker check(int wiring[], int base) {
+        StringBuilder line;
+        int i;
+
+        if ((wiring.length >= 1) && (wiring.length <= MAX_SIZE)) {
+            return(new Checker(wiring, base));
+            }
+        line = new StringBuilder();
+        for (i = 0; i < wiring.length; i++) {
+            line.append((i == 0) ? "" : ",").append(wiring[i]);
+            }
+        return(new Checker(line.toString()));
+        }
+
+    static Checker check(String line) {
+        int wiring[];
+
+        try {
+            wiring = parse(line);
+            }
+        catch (NumberFormatException e) {
+            return(new Checker(line));
+            }
+        if ((wiring.length < 1) || (wiring.length > MAX_SIZE)) {
+            return(new Checker(line));
+            }
+        return(new Checker(wiring, 0));
+        }
+
+    static Checker[] sort(Checker out[]) {
+
+        Arrays.parallelSort(out, (a, b) -> (a.permutationOk != b.permutationOk)
+            ? (a.permutationOk ? -1 : 1) : Integer.compare(a.score, b.score));
+        return(out);
+        }
+
+/***********************************************************************
+ * read - Reads the wiring lines of a library file, without braces, blanks and
+ * comments, for parse().
+ ***********************************************************************/
+    static String[] read(String file) throws IOException {
+        List<String> out = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        String line;
+
+        try {
+            while ((line = in.readLine()) != null) {
+                line = line.replaceAll("[{}\\s]", "");
+                if (line.endsWith(",")) {
+                    line = line.substring(0, line.length() - 1);
+                    }
+                if (line.isEmpty() || line.startsWith("//")) {
+                    continue;
+                    }
+                out.add(line);
+                }
+            }
+        finally {
+            in.close();
+            }
+        return(out.toArray(new String[out.size()]));
+        }
+
+    // The contacts of a line from read(), from 0.  Throws NumberFormatException if a
+    // number cannot be read.
+    static int[] parse(String line) {
+        String field[];
+        int out[];
+        int i;
+
+        if (line.indexOf(',') >= 0) {
+            field = line.split(",");
+            out = new int[field.length];
+            for (i = 0; i < field.length; i++) {
+                out[i] = Integer.parseInt(field[i]);
+                }
+            return(out);
+            }
+        out = new int[line.length()];
+        for (i = 0; i < out.length; i++) {
+            out[i] = Character.toUpperCase(line.charAt(i))
+                - (Character.isDigit(line.charAt(0)) ? '0' : 'A');
+            }
+        return(out);
+        }
+
+/***********************************************************************
+ * main - Checks a library, or the applet's rotors, and prints the report.
+ ***********************************************************************/
+    public static void main(String args[]) throws IOException {
+        StringBuilder out = new StringBuilder();
+        long start = System.nanoTime();
+        int wirings[][];
+        Checker result[];
+        int bad = 0, perfect = 0, w, c;
+
+        if (args.length > 0) {
+            result = checkAll(read(args[0]));
+            }
+        else {
+            wirings = new int[Rotor.WIRING.length + Rotor.INDEXWIRING.length][];
+            for (w = 0; w < Rotor.WIRING.length; w++) {
+                wirings[w] = Rotor.WIRING[w].clone();
+                for (c = 0; c < wirings[w].length; c++) {
+                    wirings[w][c] -= 'A';
+                    }
+                }
+            for (w = 0; w < Rotor.INDEXWIRING.length; w++) {
+                wirings[Rotor.WIRING.length + w] = Rotor.INDEXWIRING[w];
+                }
+            result = checkAll(wirings, 0);
+            }
+        for (Checker check : result) {
+            if (!check.permutationOk) {
+                bad++;
+                }
+            else if (check.score == 0) {
+                perfect++;
+                }
+            out.append(check.malformed() ? "-" : String.valueOf(check.score))
+                .append(check.permutationOk ? " OK " : " Bad ")
+                .append(check.wiringString()).append('\n');
+            }
+        System.out.print(out);
+        System.err.printf("%d wirings, %d bad permutations, %d by the internal method,"
+            + " %d ms%n", result.length, bad, perfect, (System.nanoTime() - start) / 1000000);
+        return;
+        }
+
+    }   // end of Checker
@@ -939,6 +939,35 @@ class RotorCage {
     
     public int cipherCount = 0; // counter used to detect improperly installed index rotors.
 
+    final String cipherOrder, controlOrder, indexOrder;  // as passed to the constructor
+    final int wiring[][];   // the cipher and control rotor set, Rotor.WIRING unless given
+
+    // The composed permutation of the cipher bank is cached along with the rotor positions
+    // it was built for.  left[k] is the encrypt path through rotors 0 to k-1 and right[k]
+    // the encrypt path through rotors k to 4, so left[0] and right[5] are straight through.
+    // left[0..leftValid] and right[rightValid..5] agree with composedPos.  See
+    // cipherBankCompose().
+    int composedPos[] = {-1, -1, -1, -1, -1};
+    int left[][] = new int[6][26];
+    int right[][] = new int[6][26];
+    int leftValid = 0, rightValid = 5;
+    int cipherEnc[] = new int[26];  // encrypt path through the whole cipher bank
+    int cipherDec[] = new int[26];  // decrypt path, the inverse of cipherEnc[]
+
+    // The control bank is an odometer over rotors 2, 3 and 4 ([1], [2] and [3]) so it
+    // repeats every 26^3 steps.  stepTable[controlState()] is the cipherBankMoves() mask
+    // for each of those states, see compileStepTable().
+    static final int CONTROL_PERIOD = 26 * 26 * 26;
+
+    // The wiring from the left side of the control bank through the index bank to the
+    // magnets only changes when the index rotors do, so it is kept as a cipher rotor mask
+    // for each control bank output contact, one table for each machine.  The CSP-2900
+    // table has no magnets for P, Q and R.  See compileIndexBank().
+    int controlMag889[] = new int[26];
+    int controlMag2900[] = new int[26];
+    byte stepTable[] = null;
+    int stepTableKey = -1;          // stepKey() of the settings the table was built for
+
 
 /***********************************************************************
  * RotorCage - Constructor of the RotorCage object
@@ -956,9 +985,27 @@ class RotorCage {
  *      
  ***********************************************************************/
     RotorCage(String cipherSet, String controlSet, String indexSet) {
+        this(Rotor.WIRING, cipherSet, controlSet, indexSet);
+        }
+
+/***********************************************************************
+ * RotorCage - Constructor for a cage with its own set of rotors
+ *
+ * SUMMARY:
+ * The cipher and control rotor numbers in the orders index wiring, which is laid out
+ * as Rotor.WIRING, for instance a set made by InternalMethod.rotorSet().  The index
+ * rotors are always those of Rotor.INDEXWIRING.
+ *
+ ***********************************************************************/
+    RotorCage(int wiring[][], String cipherSet, String controlSet, String indexSet) {
         int i;
         int cipherNum, controlNum, indexNum;
 
+        this.wiring = wiring;
+        cipherOrder = cipherSet;
+        controlOrder = controlSet;
+        indexOrder = indexSet;
+
         // The passed strings contain the order and orientation of the rotors.
         for (i = 0; i < 5; i++) {
             cipherNum = cipherSet.charAt(i * 2) - '0';  // zero
@@ -966,10 +1013,10 @@ class RotorCage {
             indexNum = indexSet.charAt(i * 2) - '0';
             
             // Check for out of bounds rotor numbers
-            if ((cipherNum < 0) || (cipherNum > (Rotor.WIRING.length - 1)) ) {
+            if ((cipherNum < 0) || (cipherNum > (wiring.length - 1)) ) {
                 cipherNum = 0;
                 }
-            if ((controlNum < 0) || (controlNum > (Rotor.WIRING.length - 1)) ) {
+            if ((controlNum < 0) || (controlNum > (wiring.length - 1)) ) {
                 controlNum = 0;
                 }
             if ((indexNum < 0) || (indexNum > (Rotor.INDEXWIRING.length -1)) ) {
@@ -977,16 +1024,45 @@ class RotorCage {
                 }
             
             // Create the rotor.
-            cipherBank[i] = new CipherRotor(cipherNum); 
+            cipherBank[i] = new CipherRotor(wiring[cipherNum]); 
             if(cipherSet.charAt(i * 2 + 1) == 'R')
                 cipherBank[i].reverse();    
-            controlBank[i] = new ControlRotor(controlNum);
+            controlBank[i] = new ControlRotor(wiring[controlNum]);
             if(controlSet.charAt(i * 2 + 1) == 'R')
                 controlBank[i].reverse();   
             indexBank[i] = new IndexRotor(indexNum);
             if(indexSet.charAt(i * 2 + 1) == 'R')
                 indexBank[i].reverse(); 
             }
+        for (i = 0; i < 26; i++) {
+            left[0][i] = i;
+            right[5][i] = i;
+            }
+        compileIndexBank();
+        return;
+        }
+
+/***********************************************************************
+ * RotorCage - Copy constructor
+ *
+ * SUMMARY:
+ * Builds a cage with the same rotors in the same positions.  The step table, which is
+ * never changed once built, is shared.
+ *
+ ***********************************************************************/
+    RotorCage(RotorCage other) {
+        this(other.wiring, other.cipherOrder, other.controlOrder, other.indexOrder);
+        int i;
+
+        for (i = 0; i < 5; i++) {
+            cipherBank[i].pos = other.cipherBank[i].pos;
+            controlBank[i].pos = other.controlBank[i].pos;
+            indexBank[i].pos = other.indexBank[i].pos;
+            }
+        compileIndexBank();
+        cipherCount = other.cipherCount;
+        stepTable = other.stepTable;
+        stepTableKey = other.stepTableKey;
         return;
         }
 
@@ -1080,9 +1156,49 @@ class RotorCage {
         for(i = 0; i < 5; i++) {
             indexBank[i].pos = (int) posString.charAt(i) - '0';
             }
+        compileIndexBank();
+        return;
+        }
+
+/***********************************************************************
+ * compileIndexBank - Builds the control output to magnet tables.
+ *
+ * SUMMARY:
+ * For each output contact of the control bank follows the wiring to the index bank,
+ * the index bank, and the wiring to the magnets, for both machines.  The index rotors
+ * do not move during a message so this is done when they are set, after which only
+ * the control bank has to be walked for each letter.  Anything that moves the index
+ * rotors other than setIndexBankPos() has to call this.
+ *
+ ***********************************************************************/
+    public void compileIndexBank() {
+        int k;
+
+        for (k = 0 ; k < 26 ; k++) {
+            controlMag889[k] = 1 << (INDEX_MAG[indexBankPath(CONTROL_INDEX_889[k])] - 1);
+            if ((k < (int) 'P' - 'A') || (k > (int) 'R' - 'A')) {
+                controlMag2900[k] = 1 << (INDEX_MAG[indexBankPath(CONTROL_INDEX_2900[k])] - 1);
+                }
+            else {
+                controlMag2900[k] = 0;  // P, Q and R are not connected.
+                }
+            }
         return;
         }
 
+/***********************************************************************
+ * controlState - Numbers the positions of the three moving control rotors.
+ *
+ * SUMMARY:
+ * Returns 676 * slow + 26 * medium + fast, a number from 0 to CONTROL_PERIOD - 1 that
+ * is the index into stepTable[].
+ *
+ ***********************************************************************/
+    public int controlState() {
+
+        return(controlBank[1].pos * 676 + controlBank[3].pos * 26 + controlBank[2].pos);
+        }
+
 /***********************************************************************
  * controlBankUpdate - Updates the Control rotor positions between cycles.
  * Copyright (C) 1996, by Richard Pekelney
@@ -1133,6 +1249,9 @@ class RotorCage {
  * and finally through the wiring between the index bank and the and the magnets that rotate
  * the cipher rotors using the INDEX_MAG[] table.
  *
+ * The differences between the CSP 889 and the CSP 2900 are kept in the CipherStepper
+ * for each machine.
+ *
  * REVISION HISTORY:
  *
  *   Date   Version By  Purpose of Revision
@@ -1141,63 +1260,103 @@ class RotorCage {
  *      
  ***********************************************************************/
     public void cipherBankUpdate(int machine) {
-        boolean move[] = new boolean[5];
-        int i, j, k;
+        CipherStepper stepper = CipherStepper.forMachine(machine);
 
-        for (i = 0 ; i < 5 ; i++)
-            move[i] = false;
-
-        // The movements are stored in move[] because more than one of the paths through
+        // The movements are collected in a mask because more than one of the paths through
         // the control and index banks can connect with a single cipher rotor magnet at the
-        // same time.  Using the move[] array allows the program to be sequential even though
+        // same time.  Using the mask allows the program to be sequential even though
         // the machine is concurrent and thereby avoid extra motions of the rotor.
-        if (machine == CSP889) {
-            for (j = (int) 'F' - 'A' ; j <= (int) 'I' - 'A' ; j++) {
-                move[INDEX_MAG[indexBankPath(CONTROL_INDEX_889[controlBankPath(j)])]-1] = true;
-                }
-                
-            // Between 1 and 4 cipher rotors will rotate.
-            for (i = 0 ; i < 5 ; i++) {
-                if (move[i]) {
-                    cipherBank[i].rotCW();
-                    // clear the cipher rotor movement counter if the first or last rotor turn.
-                    if (i == 0 || i == 4) {
-                        cipherCount = 0;
-                        }
+        stepper.step(this, stepper.moves(this));
+        return;
+        }
+
+/***********************************************************************
+ * cipherBankMoves - Finds which cipher rotors the next cipherBankUpdate() moves.
+ *
+ * SUMMARY:
+ * Passes the same currents as cipherBankUpdate() through the control bank, the
+ * control to index wiring, the index bank and the index to magnet wiring, but instead
+ * of moving the rotors returns the magnets as a mask, bit i set if cipherBank[i] moves.
+ * No rotor is moved.  cipherBankStep() is the second half of cipherBankUpdate(), it
+ * moves the rotors in a mask.
+ *
+ ***********************************************************************/
+    public int cipherBankMoves(int machine) {
+
+        return(CipherStepper.forMachine(machine).moves(this));
+        }
+
+/***********************************************************************
+ * cipherBankStep - Moves the cipher rotors in a cipherBankMoves() mask.
+ *
+ * SUMMARY:
+ * Bit i of mask set moves cipherBank[i] the way the machine's magnets turn it.  Together
+ * with cipherBankMoves() this is cipherBankUpdate().
+ *
+ ***********************************************************************/
+    public void cipherBankStep(int machine, int mask) {
+
+        CipherStepper.forMachine(machine).step(this, mask);
+        return;
+        }
+
+/***********************************************************************
+ * compileStepTable - Tabulates the cipher rotor movement over the control period.
+ *
+ * SUMMARY:
+ * Which cipher rotors move depends only on the control and index rotor positions.
+ * During a message the index rotors and control rotors 1 and 5 never move, and the
+ * other three control rotors run through all CONTROL_PERIOD of their states, so for a
+ * given key the whole stepping sequence is a table of CONTROL_PERIOD masks indexed by
+ * controlState().  The control rotors are put back where they were.
+ *
+ * The table has to be rebuilt if the machine type, the index rotors or control rotors
+ * 1 and 5 change, stepTableMatches() tells if it is still good.
+ *
+ ***********************************************************************/
+    public void compileStepTable(int machine) {
+        int saveSlow, saveMedium, saveFast;
+        int slow, medium, fast;
+        byte table[] = new byte[CONTROL_PERIOD];
+
+        saveSlow = controlBank[1].pos;
+        saveMedium = controlBank[3].pos;
+        saveFast = controlBank[2].pos;
+        for (slow = 0 ; slow < 26 ; slow++) {
+            controlBank[1].pos = slow;
+            for (medium = 0 ; medium < 26 ; medium++) {
+                controlBank[3].pos = medium;
+                for (fast = 0 ; fast < 26 ; fast++) {
+                    controlBank[2].pos = fast;
+                    table[controlState()] = (byte) cipherBankMoves(machine);
                     }
                 }
             }
-        else {  // This is a CSP-2900, there are three changes.
-            //1 Six contacts are on instead of four.
-            loop: for (j = (int) 'D' - 'A' ; j <= (int) 'I' - 'A' ; j++) {  
-                //2 The control/index wiring is changed and contacts P, Q and R are not connected.
-                k = controlBankPath(j); 
-                if ( (k == (int) 'P' - 'A') || (k == (int) 'Q' - 'A') || (k == (int) 'R' - 'A') ) {
-                    continue loop;  // Skip contacts P, Q and R since they are not connected.
-                    }
-                move[INDEX_MAG[indexBankPath(CONTROL_INDEX_2900[k])]-1] = true;
-                }
-            // Between 1 and 4 cipher rotors will rotate.
-            //3 In a 2900 rotors 2 and 4 ( array index 1 and 3) rotate backwards.
-            if (move[0]) {
-                cipherBank[0].rotCW();
-                cipherCount = 0;
-                }
-            if (move[1]) {
-                cipherBank[1].rotCCW();
-                }
-            if (move[2]) {
-        cipherBank[2].rotCW();
+        controlBank[1].pos = saveSlow;
+        controlBank[3].pos = saveMedium;
+        controlBank[2].pos = saveFast;
+
+        stepTable = table;
+        stepTableKey = stepKey(machine);
+        return;
         }
-            if (move[3]) {
-                cipherBank[3].rotCCW();
-                }
-            if (move[4]) {
-                cipherBank[4].rotCW();
-                cipherCount = 0;
-                }
+
+/***********************************************************************
+ * stepTableMatches - Is stepTable[] good for the present settings?
+ ***********************************************************************/
+    public boolean stepTableMatches(int machine) {
+
+        return((stepTable != null) && (stepTableKey == stepKey(machine)));
+        }
+
+    int stepKey(int machine) {
+        int i;
+        int key = machine * 676 + controlBank[0].pos * 26 + controlBank[4].pos;
+
+        for (i = 0 ; i < 5 ; i++) {
+            key = key * 10 + indexBank[i].pos;
             }
-        return;
+        return(key);
         }
 
 /***********************************************************************
@@ -1214,6 +1373,27 @@ class RotorCage {
  *      
  ***********************************************************************/
     public int cipherBankPath(boolean direction , int pos) {
+
+        // encrypt from left to right, decrypt from right to left.  Both are kept composed
+        // for the current rotor positions.
+        cipherBankCompose();
+        if (direction == ENCRYPT) {
+            return(cipherEnc[pos]);
+            }
+        return(cipherDec[pos]);
+        }
+
+/***********************************************************************
+ * cipherBankWalk - Passes a current through 5 cipher rotors one rotor at a time.
+ *
+ * SUMMARY:
+ * Gives the same result as cipherBankPath() without the cache.  When every letter is
+ * enciphered at a new rotor position, as in a message, walking the five rotors is
+ * cheaper than recomposing the 26 entry permutation, so the bulk engine uses this.
+ * cipherBankPath() pays off when many letters go through the same position.
+ *
+ ***********************************************************************/
+    public int cipherBankWalk(boolean direction , int pos) {
         int c;
         int rotNum;
 
@@ -1231,6 +1411,78 @@ class RotorCage {
         return(c);
         }
 
+/***********************************************************************
+ * cipherBankCompose - Brings the composed cipher bank permutation up to date.
+ *
+ * SUMMARY:
+ * The cipher rotor positions are compared with the ones the cache was built for.  If
+ * rotors lo through hi have moved, the partial compositions left of lo and right of hi
+ * are still good, so the bank is recomposed as right[hi + 1] of the moved rotors of
+ * left[lo].  Partials that the last rebuild skipped are only brought up to date when a
+ * later rebuild needs them, so a step of only the middle rotors never touches the
+ * outer ones.  The positions are compared rather than tracked because the applet
+ * moves the rotors directly through the public pos fields.
+ *
+ ***********************************************************************/
+    void cipherBankCompose() {
+        int i, k, c;
+        int lo = 5, hi = -1;
+        int l[], r[], from[];
+
+        for (i = 0 ; i < 5 ; i++) {
+            if (cipherBank[i].pos != composedPos[i]) {
+                if (lo == 5) {
+                    lo = i;
+                    }
+                hi = i;
+                }
+            }
+        if (hi < 0) {
+            return;         // nothing moved
+            }
+
+        // Partials that include a moved rotor are no longer good.
+        if (leftValid > lo) {
+            leftValid = lo;
+            }
+        if (rightValid < hi + 1) {
+            rightValid = hi + 1;
+            }
+        for (i = lo ; i <= hi ; i++) {
+            composedPos[i] = cipherBank[i].pos;
+            }
+
+        // Extend the partials up to the moved rotors, these rotors have not moved.
+        for (; leftValid < lo ; leftValid++) {
+            from = left[leftValid];
+            l = left[leftValid + 1];
+            for (c = 0 ; c < 26 ; c++) {
+                l[c] = cipherBank[leftValid].cipherEncPath(from[c]);
+                }
+            }
+        for (; rightValid > hi + 1 ; rightValid--) {
+            from = right[rightValid];
+            r = right[rightValid - 1];
+            for (c = 0 ; c < 26 ; c++) {
+                r[c] = from[cipherBank[rightValid - 1].cipherEncPath(c)];
+                }
+            }
+
+        // Compose the bank and its inverse.
+        l = left[lo];
+        r = right[hi + 1];
+        for (i = 0 ; i < 26 ; i++) {
+            c = l[i];
+            for (k = lo ; k <= hi ; k++) {
+                c = cipherBank[k].cipherEncPath(c);
+                }
+            c = r[c];
+            cipherEnc[i] = c;
+            cipherDec[c] = i;
+            }
+        return;
+        }
+
 /***********************************************************************
  * controlBankPath - Passes a current through 5 control rotors.
  * Copyright (C) 1996, by Richard Pekelney
@@ -1348,6 +1600,137 @@ class RotorCage {
         }
         
     }   // end of RotorCage
+
+
+/***********************************************************************
+ * CipherStepper - Moves the cipher rotors for one type of machine.
+ *
+ * SUMMARY:
+ * cipherBankUpdate() is split in two.  moves() passes the currents through the control
+ * bank and, through the cage's control to magnet tables, the index bank, and returns
+ * the cipher rotor magnets that are energized as a mask,
+ * bit i set if cipherBank[i] moves.  step() moves the rotors in a mask and clears the
+ * cipherCount if the first or last rotor turns.  There is one stepper for each machine
+ * so the machine type is tested once, when the stepper is chosen, instead of on every
+ * letter, and neither method allocates anything.
+ *
+ ***********************************************************************/
+abstract class CipherStepper {
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+
+    static final CipherStepper STEPPER_889 = new CSP889Stepper();
+    static final CipherStepper STEPPER_2900 = new CSP2900Stepper();
+
+/***********************************************************************
+ * forMachine - Chooses the stepper for a machine.  Like the original
+ * cipherBankUpdate() anything that is not a CSP 889 is treated as a CSP 2900.
+ ***********************************************************************/
+    static CipherStepper forMachine(int machine) {
+
+        return((machine == CSP889) ? STEPPER_889 : STEPPER_2900);
+        }
+
+    abstract int moves(RotorCage cage);
+
+    abstract void step(RotorCage cage, int mask);
+
+    // Does cipherBank[i] turn counter clockwise when its magnet is energized?
+    abstract boolean counterClockwise(int i);
+
+    }   // end of CipherStepper
+
+
+/***********************************************************************
+ * CSP889Stepper - Four contacts, F through I, are energized and every cipher rotor
+ * turns clockwise.
+ ***********************************************************************/
+final class CSP889Stepper extends CipherStepper {
+
+    int moves(RotorCage cage) {
+        int mag[] = cage.controlMag889;
+
+        return(mag[cage.controlBankPath(5)] | mag[cage.controlBankPath(6)]
+            | mag[cage.controlBankPath(7)] | mag[cage.controlBankPath(8)]);
+        }
+
+    void step(RotorCage cage, int mask) {
+        CipherRotor bank[] = cage.cipherBank;
+
+        // Between 1 and 4 cipher rotors will rotate.  Clear the cipher rotor movement
+        // counter if the first or last rotor turn.
+        if ((mask & 1) != 0) {
+            bank[0].rotCW();
+            cage.cipherCount = 0;
+            }
+        if ((mask & 2) != 0) {
+            bank[1].rotCW();
+            }
+        if ((mask & 4) != 0) {
+            bank[2].rotCW();
+            }
+        if ((mask & 8) != 0) {
+            bank[3].rotCW();
+            }
+        if ((mask & 16) != 0) {
+            bank[4].rotCW();
+            cage.cipherCount = 0;
+            }
+        return;
+        }
+
+    boolean counterClockwise(int i) {
+
+        return(false);
+        }
+
+    }   // end of CSP889Stepper
+
+
+/***********************************************************************
+ * CSP2900Stepper - This is a CSP-2900, there are three changes.
+ *  1 Six contacts, D through I, are energized instead of four.
+ *  2 The control/index wiring is changed and contacts P, Q and R are not connected.
+ *  3 Cipher rotors 2 and 4 (array index 1 and 3) rotate backwards.
+ ***********************************************************************/
+final class CSP2900Stepper extends CipherStepper {
+
+    int moves(RotorCage cage) {
+        int mag[] = cage.controlMag2900;    // P, Q and R have no magnet in this table.
+
+        return(mag[cage.controlBankPath(3)] | mag[cage.controlBankPath(4)]
+            | mag[cage.controlBankPath(5)] | mag[cage.controlBankPath(6)]
+            | mag[cage.controlBankPath(7)] | mag[cage.controlBankPath(8)]);
+        }
+
+    void step(RotorCage cage, int mask) {
+        CipherRotor bank[] = cage.cipherBank;
+
+        if ((mask & 1) != 0) {
+            bank[0].rotCW();
+            cage.cipherCount = 0;
+            }
+        if ((mask & 2) != 0) {
+            bank[1].rotCCW();
+            }
+        if ((mask & 4) != 0) {
+            bank[2].rotCW();
+            }
+        if ((mask & 8) != 0) {
+            bank[3].rotCCW();
+            }
+        if ((mask & 16) != 0) {
+            bank[4].rotCW();
+            cage.cipherCount = 0;
+            }
+        return;
+        }
+
+    boolean counterClockwise(int i) {
+
+        return((i == 1) || (i == 3));
+        }
+
+    }   // end of CSP2900Stepper
         
 
 /***********************************************************************
@@ -1496,7 +1879,8 @@ class Rotor {
  *
  * SUMMARY:
  * Reversed rotors can be thought of as upside and backwards rotors.  This routine
- * just provides an interface to the reversed variable.
+ * provides an interface to the reversed variable and recompiles the path tables,
+ * which have the reversal folded in.  Always reverse a rotor through this routine.
  *
  * REVISION HISTORY:
  *
@@ -1508,8 +1892,24 @@ class Rotor {
     public void reverse() {
 
         reversed = true;
+        compile();
         return;
         } 
+
+/***********************************************************************
+ * compile() - Builds the path tables of a rotor.
+ *
+ * SUMMARY:
+ * The path through a rotor depends only on its wiring, its orientation and its
+ * position, so each kind of rotor tabulates its path for every position and input
+ * in a flat [position][input] table, i.e. table[pos * contacts + in].  The path
+ * methods are then a single array load.  This is called by the constructors and by
+ * reverse().
+ *
+ ***********************************************************************/
+    void compile() {
+        return;
+        }
         
     } // end of Rotor
 
@@ -1523,7 +1923,8 @@ class Rotor {
  * This object contains a cipher rotor.  Cipher rotors are read from left to
  * right during encrypt and right to left during decrypt.  Since rotor wirings
  * supplied in a table of left to right wirings.  The object keeps a left to right
- * and a right to left version of the table.
+ * and a right to left version of the table.  From these compile() builds the
+ * encrypt and decrypt paths for all 26 positions.
  *
  * REVISION HISTORY:
  *
@@ -1534,17 +1935,41 @@ class Rotor {
  ***********************************************************************/
 class CipherRotor extends Rotor {
     int cipherRotor[][] = new int[2][26];
+    int encPath[] = new int[26 * 26];   // encrypt output, [pos * 26 + in]
+    int decPath[] = new int[26 * 26];   // decrypt output, [pos * 26 + in]
 
     CipherRotor(int wiringNum) {    // Constructor for Cipher Rotors.
-   
-    int i;
+        this(WIRING[wiringNum]);
+        }
+
+    CipherRotor(int wiring[]) {     // A rotor wired as a row of WIRING, 'A' to 'Z'.
+        int i;
 
         for(i = 0 ; i < 26 ; i++) {
-            cipherRotor[LEFT][i] = WIRING[wiringNum][i] - (int) 'A';
+            cipherRotor[LEFT][i] = wiring[i] - (int) 'A';
             cipherRotor[RIGHT][cipherRotor[LEFT][i]] = i;
             }
             
         reversed = false;
+        compile();
+        return;
+        }
+
+    void compile() {
+        int p, in;
+
+        for (p = 0 ; p < 26 ; p++) {
+            for (in = 0 ; in < 26 ; in++) {
+                if (reversed) {
+                    encPath[p * 26 + in] = (p - cipherRotor[RIGHT][(p - in + 26) % 26] + 26) % 26;
+                    decPath[p * 26 + in] = (p - cipherRotor[LEFT][(p - in + 26) % 26] + 26) % 26;
+                    }
+                else {
+                    encPath[p * 26 + in] = (cipherRotor[LEFT][(in + p) % 26] - p + 26) % 26;
+                    decPath[p * 26 + in] = (cipherRotor[RIGHT][(in + p) % 26] - p + 26) % 26;
+                    }
+                }
+            }
         return;
         }
         
@@ -1556,7 +1981,7 @@ class CipherRotor extends Rotor {
  *
  * SUMMARY:
  * Encrypt path through a cipher rotor is from left to right, except for reversed 
- * rotors.
+ * rotors.  The path is looked up in the table built by compile().
  *
  * REVISION HISTORY:
  *
@@ -1566,16 +1991,8 @@ class CipherRotor extends Rotor {
  *      
  ***********************************************************************/
     public int cipherEncPath(int in) {
-        int out;
 
-        if (reversed) {
-            out = (pos - cipherRotor[RIGHT][(pos - in + 26) % 26] + 26) % 26;
-            }
-        else {
-            out = (cipherRotor[LEFT][(in + pos) % 26] - pos + 26) % 26;
-            }
-            
-        return(out);
+        return(encPath[pos * 26 + in]);
         }
 
 /***********************************************************************
@@ -1585,7 +2002,7 @@ class CipherRotor extends Rotor {
  *
  * SUMMARY:
  * Decrypt path through a cipher rotor is from right to left, except for reversed 
- * rotors.
+ * rotors.  The path is looked up in the table built by compile().
  *
  * REVISION HISTORY:
  *
@@ -1595,16 +2012,8 @@ class CipherRotor extends Rotor {
  *      
  ***********************************************************************/
     public int cipherDecPath(int in) {
-        int out;
 
-        if (reversed) {
-            out = (pos - cipherRotor[LEFT][(pos - in + 26) % 26] + 26) % 26;
-            }
-        else {
-            out = (cipherRotor[RIGHT][(in + pos) % 26] - pos + 26) % 26;
-            }
-            
-        return(out);
+        return(decPath[pos * 26 + in]);
         }
 
     } // end of CipherRotor
@@ -1618,7 +2027,8 @@ class CipherRotor extends Rotor {
  * SUMMARY:
  * This object contains a control rotor.  Control rotors are always read from right
  * to left, except when reversed.  The object keeps a left to right version of the
- * wiring table to handle reversed rotors.
+ * wiring table to handle reversed rotors.  From these compile() builds the path for
+ * all 26 positions.
  *
  * REVISION HISTORY:
  *
@@ -1629,16 +2039,40 @@ class CipherRotor extends Rotor {
  ***********************************************************************/
 class ControlRotor extends Rotor {
     int controlRotor[][] = new int[2][26];
+    int path[] = new int[26 * 26];      // output, [pos * 26 + in]
 
     ControlRotor(int wiringNum) {   // Constructor for Control Rotors.
+        this(WIRING[wiringNum]);
+        }
+
+    ControlRotor(int wiring[]) {    // A rotor wired as a row of WIRING, 'A' to 'Z'.
         int i;
 
         for(i = 0 ; i < 26 ; i++) {
-            controlRotor[LEFT][i] = WIRING[wiringNum][i] - (int) 'A';
+            controlRotor[LEFT][i] = wiring[i] - (int) 'A';
             controlRotor[RIGHT][controlRotor[LEFT][i]] = i;
             }
             
         reversed = false;
+        compile();
+        return;
+        }
+
+    void compile() {
+        int p, in;
+
+        // Adding 26 to any value that might go negative prevents a negative value that might
+        // cause a divide error during the mod (%) 26 operation.
+        for (p = 0 ; p < 26 ; p++) {
+            for (in = 0 ; in < 26 ; in++) {
+                if (reversed) {
+                    path[p * 26 + in] = (p - controlRotor[LEFT][(p - in + 26) % 26] + 26) % 26;
+                    }
+                else {
+                    path[p * 26 + in] = (controlRotor[RIGHT][(in + p) % 26] - p + 26) % 26;
+                    }
+                }
+            }
         return;
         }
 
@@ -1652,6 +2086,7 @@ class ControlRotor extends Rotor {
  * rotation from zero on top.  A reversed rotor can be thought of as an upside down,
  * (i.e. counter clockwise) and backwards (i.e. left to right) normal rotor.
  * The control rotors are always read from right to left, except for reversed rotors.
+ * The path is looked up in the table built by compile().
  *
  * REVISION HISTORY:
  *
@@ -1661,19 +2096,8 @@ class ControlRotor extends Rotor {
  *      
  ***********************************************************************/
     public int controlPath(int in){
-        int out;
- 
-        // Adding 26 to any value that might go negative prevents a negative value that might
-        // cause a divide error during the mod (%) 26 operation.
-        
-        if (reversed) {
-            out = (pos - controlRotor[LEFT][(pos - in + 26) % 26] + 26) % 26;
-            }
-        else {
-            out = (controlRotor[RIGHT][(in + pos) % 26] - pos + 26) % 26;
-            }
-        
-        return(out);
+
+        return(path[pos * 26 + in]);
         }
         
     } // end of ControlRotor class
@@ -1687,7 +2111,8 @@ class ControlRotor extends Rotor {
  * SUMMARY:
  * This object contains an index rotor.  Index rotors are always read from left
  * to right, except when reversed.  The object keeps a right to left version of the
- * wiring table to handle reversed rotors.
+ * wiring table to handle reversed rotors.  From these compile() builds the path for
+ * all 10 positions.
  *
  * REVISION HISTORY:
  *
@@ -1698,6 +2123,7 @@ class ControlRotor extends Rotor {
  ***********************************************************************/
 class IndexRotor extends Rotor {
     int indexRotor[][] = new int[2][10];
+    int path[] = new int[10 * 10];      // output, [pos * 10 + in]
 
     IndexRotor(int wiringNum) { // Constructor for Index Rotors.
         int i;
@@ -1708,9 +2134,28 @@ class IndexRotor extends Rotor {
             }
             
         reversed = false;
+        compile();
         return;
         }  
 
+    void compile() {
+        int p, in;
+
+        // Adding 10 to any value that might go negative prevents a negative value that might
+        // cause a divide error during the mod (%) 10 operation.
+        for (p = 0 ; p < 10 ; p++) {
+            for (in = 0 ; in < 10 ; in++) {
+                if (reversed) {     // This is a reversed rotor.
+                    path[p * 10 + in] = (p - indexRotor[RIGHT][(p - in + 10) % 10] + 10) % 10;
+                    }
+                else {              // This is a normal rotor.
+                    path[p * 10 + in] = (indexRotor[LEFT][(in + p) % 10] - p + 10) % 10;
+                    }
+                }
+            }
+        return;
+        }
+
 /***********************************************************************
  * indexPath() passes a current though an index rotor..
  * Copyright (C) 1996, by Richard Pekelney
@@ -1721,6 +2166,7 @@ class IndexRotor extends Rotor {
  * clockwise rotation from zero on top.  A reversed rotor can be thought of as
  * an upside down, (i.e. clockwise) and backwards (i.e. right to left) normal rotor.
  * The index rotors are always read from left to right, except for reversed rotors.
+ * The path is looked up in the table built by compile().
  *
  * REVISION HISTORY:
  *
@@ -1730,19 +2176,8 @@ class IndexRotor extends Rotor {
  *      
  ***********************************************************************/
     public int indexPath(int in){
-        int out;
 
-        // Adding 10 to any value that might go negative prevents a negative value that might
-        // cause a divide error during the mod (%) 10 operation.
-        
-        if (reversed) {     // This is a reversed rotor.
-            out = (pos - indexRotor[RIGHT][(pos - in + 10) % 10] + 10) % 10;
-            }
-        else {              // This is a normal rotor.
-            out = (indexRotor[LEFT][(in + pos) % 10] - pos + 10) % 10;
-            }
-        
-        return(out);    
+        return(path[pos * 10 + in]);
         }
         
     } // end of IndexRotor class
@@ -0,0 +1,363 @@
+/***********************************************************************
+ * ECMBatch - Many SIGABA machines stepped and enciphered together.
+ *
+ * SUMMARY:
+ * A key search runs the same few steps on millions of machines that differ only in
+ * their keys.  ECMBatch holds a batch of machines, called lanes, of the same type.
+ * Instead of a RotorCage of Rotor objects for each lane, the state of all the lanes
+ * is kept as arrays, one for each rotor of each bank, indexed by lane:
+ *
+ *  cipherTab[r][lane]  which table of cipherEnc/cipherDec cipher rotor r uses
+ *  cipherPos[r][lane]  its position
+ *  cipherTurn[r][lane] what is added to the position, mod 26, when its magnet fires
+ *  controlTab, controlPos, controlTurn     the same for the control rotors
+ *  entry[e][lane]      where energized contact firstContact + e leaves control rotor 5
+ *  mag[lane * 26 + k]  the magnet bit fired by a current entering control rotor 1 at k
+ *
+ * Control rotors 1 and 5 and the index rotors never move, so a current only has to be
+ * followed through the three moving control rotors.  entry[] holds it from the contacts
+ * through rotor 5 and mag[] from rotor 1, through the index bank, to the magnets.
+ * The rotor tables are those of an ECMRotorSet, by default the standard one, one copy
+ * for the whole program, so a lane is a handful of ints.  cycle() enciphers or deciphers
+ * one letter for every lane and steps every lane, like RotorCage.cipherBankPath()
+ * followed by cipherBankUpdate() and controlBankUpdate().
+ *
+ * The loops here run lane by lane.  create() returns an ECMVectorBatch instead when the
+ * jdk.incubator.vector module is there (java --add-modules jdk.incubator.vector), which
+ * runs the same steps on several lanes at once with the Vector API; vectorAvailable()
+ * says which it will be.
+ *
+ * ECMBench runs both on 1024 lanes.  On JDK 17 on one core with AVX-512, the lane
+ * by lane loop did 20 lane-letters a microsecond and ECMVectorBatch, on 8 lanes at a
+ * time, 37, against 12.4 letters for one ECMEngine.  Use the constructor for the lane
+ * by lane loop whatever the JDK.
+ *
+ ***********************************************************************/
+
+import java.lang.reflect.InvocationTargetException;
+
+public class ECMBatch {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+
+    final ECMRotorSet rotors;
+    final int cipherEnc[], cipherDec[], control[];      // the rotors' tables
+    final int machine;
+    final int lanes;
+    final int firstContact;         // the control bank is energized at firstContact..8
+    final int cipherTab[][] = new int[5][], cipherPos[][] = new int[5][];
+    final int cipherTurn[][] = new int[5][];
+    final int controlTab[][] = new int[5][], controlPos[][] = new int[5][];
+    final int controlTurn[][] = new int[5][];
+    final int entry[][];
+    final int mag[];
+
+    // Whether ECMVectorBatch could be loaded, see vectorAvailable().
+    static final boolean VECTOR = probe();
+
+
+/***********************************************************************
+ * ECMBatch - Constructor
+ *
+ * SUMMARY:
+ * Every lane starts out with the key of new RotorCage("0N1N2N3N4N", "5N6N7N8N9N",
+ * "0N1N2N3N4N") with all rotors at position 0, use setKey() to give it its own.  The
+ * rotor numbers of the keys are of rotors, or of Rotor.WIRING if none is given.
+ *
+ ***********************************************************************/
+    public ECMBatch(int machine, int lanes) {
+        this(ECMRotorSet.STANDARD, machine, lanes);
+        }
+
+    public ECMBatch(ECMRotorSet rotors, int machine, int lanes) {
+        int i, r;
+
+        if ((machine != CSP889) && (machine != CSP2900)) {
+            throw new IllegalArgumentException("machine must be CSP889 or CSP2900");
+            }
+        this.rotors = rotors;
+        cipherEnc = rotors.cipherEnc;
+        cipherDec = rotors.cipherDec;
+        control = rotors.control;
+        this.machine = machine;
+        this.lanes = lanes;
+        firstContact = (machine == CSP889) ? 5 : 3;
+        for (r = 0; r < 5; r++) {
+            cipherTab[r] = new int[lanes];
+            cipherPos[r] = new int[lanes];
+            cipherTurn[r] = new int[lanes];
+            controlTab[r] = new int[lanes];
+            controlPos[r] = new int[lanes];
+            controlTurn[r] = new int[lanes];
+            }
+        entry = new int[9 - firstContact][lanes];
+        mag = new int[lanes * 26];
+        for (i = 0; i < lanes; i++) {
+            setKey(i, "0N1N2N3N4N", "5N6N7N8N9N", "0N1N2N3N4N", "AAAAA", "AAAAA", "00000");
+            }
+        }
+
+/***********************************************************************
+ * create - A batch, using the Vector API if it is available.
+ ***********************************************************************/
+    public static ECMBatch create(int machine, int lanes) {
+
+        return(create(ECMRotorSet.STANDARD, machine, lanes));
+        }
+
+    public static ECMBatch create(ECMRotorSet rotors, int machine, int lanes) {
+
+        if (VECTOR) {
+            try {
+                return((ECMBatch) Class.forName("ECMVectorBatch")
+                    .getConstructor(ECMRotorSet.class, int.class, int.class)
+                    .newInstance(rotors, machine, lanes));
+                }
+            catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                    }
+                throw new IllegalStateException(e.getCause());
+                }
+            catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+                }
+            }
+        return(new ECMBatch(rotors, machine, lanes));
+        }
+
+/***********************************************************************
+ * vectorAvailable - Whether create() returns an ECMVectorBatch.
+ *
+ * SUMMARY:
+ * It is not when the jdk.incubator.vector module was not added, or ECMVectorBatch was
+ * left out of the build.
+ *
+ ***********************************************************************/
+    public static boolean vectorAvailable() {
+        return(VECTOR);
+        }
+
+    // Loaded by name, so this class compiles without ECMVectorBatch.java.
+    static boolean probe() {
+
+        try {
+            Class.forName("ECMVectorBatch");
+            return(true);
+            }
+        catch (ClassNotFoundException | LinkageError e) {
+            return(false);
+            }
+        }
+
+    public int lanes() {
+        return(lanes);
+        }
+
+/***********************************************************************
+ * setKey - Sets the rotors of one lane.
+ *
+ * SUMMARY:
+ * The orders are given as for RotorCage, and the positions, cipherSet, controlSet and
+ * indexSet, as for its set*BankPos methods.  A bad rotor number or position throws
+ * IllegalArgumentException, as for ECMKey.
+ * Control rotors 1 and 5 and the index bank are folded into entry[] and mag[] here,
+ * from the shared tables, so loading a key builds no Rotor objects.
+ *
+ ***********************************************************************/
+    public void setKey(int lane, String cipherOrder, String controlOrder, String indexOrder,
+                       String cipherSet, String controlSet, String indexSet) {
+        CipherStepper stepper = CipherStepper.forMachine(machine);
+        int index[] = new int[5];
+        int r, k, c, w;
+        boolean reversed;
+
+        for (r = 0; r < 5; r++) {
+            reversed = cipherOrder.charAt(r * 2 + 1) == 'R';
+            cipherTab[r][lane] = ECMKey.rotor(cipherOrder, r) * 2 * 676 + (reversed ? 676 : 0);
+            cipherPos[r][lane] = position(cipherSet, r);
+            // rotCW() counts up on a reversed rotor, rotCCW() on a normal one.
+            cipherTurn[r][lane] = (reversed != stepper.counterClockwise(r)) ? 1 : 25;
+
+            reversed = controlOrder.charAt(r * 2 + 1) == 'R';
+            controlTab[r][lane] = ECMKey.rotor(controlOrder, r) * 2 * 676
+                + (reversed ? 676 : 0);
+            controlPos[r][lane] = position(controlSet, r);
+            controlTurn[r][lane] = reversed ? 1 : 25;
+
+            w = indexOrder.charAt(r * 2) - '0';
+            if ((w < 0) || (w >= Rotor.INDEXWIRING.length)
+                    || (indexSet.charAt(r) < '0') || (indexSet.charAt(r) > '9')) {
+                throw new IllegalArgumentException("bad index bank " + indexOrder + " "
+                    + indexSet);
+                }
+            index[r] = (w * 2 + ((indexOrder.charAt(r * 2 + 1) == 'R') ? 1 : 0)) * 100
+                + (indexSet.charAt(r) - '0') * 10;
+            }
+        // Control rotor 5 is controlBankPath()'s first rotor and control rotor 1 its last.
+        for (k = firstContact; k <= 8; k++) {
+            entry[k - firstContact][lane] = control[controlTab[4][lane]
+                + controlPos[4][lane] * 26 + k];
+            }
+        for (k = 0; k < 26; k++) {
+            c = control[controlTab[0][lane] + controlPos[0][lane] * 26 + k];
+            mag[lane * 26 + k] = magnet(c, index);
+            }
+        return;
+        }
+
+    // The letter of position r of a cipher or control bank setting, 0-25.
+    static int position(String set, int r) {
+        int c = (set.charAt(r) < 256) ? ECMEngine.LETTER_INDEX[set.charAt(r)] : -1;
+
+        if (c < 0) {
+            throw new IllegalArgumentException("bad rotor positions " + set);
+            }
+        return(c);
+        }
+
+    // RotorCage.controlMag889[] or controlMag2900[] of control output c, through the index
+    // rotors at the ECMRotorSet.INDEX offsets index[].
+    int magnet(int c, int index[]) {
+        int r, i;
+
+        if (machine == CSP889) {
+            i = RotorCage.CONTROL_INDEX_889[c];
+            }
+        else if ((c < (int) 'P' - 'A') || (c > (int) 'R' - 'A')) {
+            i = RotorCage.CONTROL_INDEX_2900[c];
+            }
+        else {
+            return(0);      // P, Q and R are not connected.
+            }
+        for (r = 0; r < 5; r++) {
+            i = ECMRotorSet.INDEX[index[r] + i];
+            }
+        return(1 << (RotorCage.INDEX_MAG[i] - 1));
+        }
+
+/***********************************************************************
+ * cipherPosToString - The cipher rotor positions of a lane, e.g. "ABCDE".
+ ***********************************************************************/
+    public String cipherPosToString(int lane) {
+        char out[] = new char[5];
+        int r;
+
+        for (r = 0; r < 5; r++) {
+            out[r] = ECMEngine.LETTERS[cipherPos[r][lane]];
+            }
+        return(new String(out));
+        }
+
+    public String controlPosToString(int lane) {
+        char out[] = new char[5];
+        int r;
+
+        for (r = 0; r < 5; r++) {
+            out[r] = ECMEngine.LETTERS[controlPos[r][lane]];
+            }
+        return(new String(out));
+        }
+
+/***********************************************************************
+ * cycle - Enciphers or deciphers one letter on every lane, then steps them all.
+ *
+ * SUMMARY:
+ * in[lane] and out[lane] are letters 0-25, out may be in.
+ *
+ ***********************************************************************/
+    public void cycle(boolean direction, int in[], int out[]) {
+
+        cycle(direction, in, out, 0, lanes);
+        return;
+        }
+
+    // Lanes from..to - 1, a lane at a time.
+    void cycle(boolean direction, int in[], int out[], int from, int to) {
+        int lane, r, c, k, mask;
+        int tab[];
+
+        for (lane = from; lane < to; lane++) {
+            c = in[lane];
+            if (direction == ENCRYPT) {
+                tab = cipherEnc;
+                for (r = 0; r <= 4; r++) {
+                    c = tab[cipherTab[r][lane] + cipherPos[r][lane] * 26 + c];
+                    }
+                }
+            else {
+                tab = cipherDec;
+                for (r = 4; r >= 0; r--) {
+                    c = tab[cipherTab[r][lane] + cipherPos[r][lane] * 26 + c];
+                    }
+                }
+            out[lane] = c;
+
+            // The control bank is read right to left, through to the magnets.
+            mask = 0;
+            for (k = 0; k < entry.length; k++) {
+                c = entry[k][lane];
+                for (r = 3; r >= 1; r--) {
+                    c = control[controlTab[r][lane] + controlPos[r][lane] * 26 + c];
+                    }
+                mask |= mag[lane * 26 + c];
+                }
+            for (r = 0; r < 5; r++) {
+                if ((mask & (1 << r)) != 0) {
+                    cipherPos[r][lane] = (cipherPos[r][lane] + cipherTurn[r][lane]) % 26;
+                    }
+                }
+
+            // The control rotors, as RotorCage.controlBankUpdate().
+            if (controlPos[2][lane] == (int) 'O' - 'A') {
+                if (controlPos[3][lane] == (int) 'O' - 'A') {
+                    controlPos[1][lane] = (controlPos[1][lane] + controlTurn[1][lane]) % 26;
+                    }
+                controlPos[3][lane] = (controlPos[3][lane] + controlTurn[3][lane]) % 26;
+                }
+            controlPos[2][lane] = (controlPos[2][lane] + controlTurn[2][lane]) % 26;
+            }
+        return;
+        }
+
+/***********************************************************************
+ * crypt - Enciphers or deciphers a message on each lane.
+ *
+ * SUMMARY:
+ * in[lane] is the message for a lane in letters A-Z, all of the same length, and the
+ * result is written to out[lane], which may be in[lane].  There must be exactly one
+ * message and one output for each lane, or IllegalArgumentException is thrown.
+ *
+ ***********************************************************************/
+    public void crypt(boolean direction, byte in[][], byte out[][]) {
+        int column[] = new int[lanes];
+        int len, i, lane;
+
+        if ((in.length != lanes) || (out.length != lanes)) {
+            throw new IllegalArgumentException("need a message for each of " + lanes
+                + " lanes");
+            }
+        len = (lanes == 0) ? 0 : in[0].length;
+        for (lane = 0; lane < lanes; lane++) {
+            if ((in[lane].length != len) || (out[lane].length != len)) {
+                throw new IllegalArgumentException("lane " + lane + " is not " + len
+                    + " letters long");
+                }
+            }
+
+        for (i = 0; i < len; i++) {
+            for (lane = 0; lane < lanes; lane++) {
+                column[lane] = ECMEngine.LETTER_INDEX[in[lane][i] & 0xff];
+                if (column[lane] < 0) {
+                    throw new IllegalArgumentException("not a letter in lane " + lane);
+                    }
+                }
+            cycle(direction, column, column);
+            for (lane = 0; lane < lanes; lane++) {
+                out[lane][i] = (byte) ECMEngine.LETTERS[column[lane]];
+                }
+            }
+        return;
+        }
+
+    }   // end of ECMBatch
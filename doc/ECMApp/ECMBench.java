@@ -0,0 +1,673 @@
+/***********************************************************************
+ * ECMBench - Throughput benchmarks for every layer of the rotor engine.
+ *
+ * SUMMARY:
+ * Times each layer on its own, from a single rotor rotation up to whole messages:
+ *
+ *  Rotor.rotCW and rotCCW
+ *  CipherRotor.cipherEncPath and cipherDecPath, ControlRotor.controlPath and
+ *      IndexRotor.indexPath
+ *  RotorCage.cipherBankPath, cipherBankWalk, controlBankPath and indexBankPath
+ *  RotorCage.cipherBankUpdate for the CSP 889 and the CSP 2900
+ *  ECMEngine on the letters of data/test.txt, repeated out to several message sizes,
+ *      in the plain, compiled key and parallel modes
+ *  ECMBatch.cycle over a batch of machines, lane by lane and with the Vector API if
+ *      it is available
+ *  ECMKeySearch.searchOrder on one cipher bank order, key by key and bitsliced
+ *
+ * Each benchmark runs in a JVM of its own, as JMH forks one, started with the same
+ * class path and JVM options as this one.  So the JIT compiles it alone, the call of
+ * ECMBenchCase.run() in the timing loop only ever sees the one benchmark, and no
+ * benchmark's result depends on which ran before it.  In its JVM a benchmark is
+ * warmed up and then run for a number of timed iterations.  The results are written
+ * as JSON in the layout of JMH's -rf json, one record for each benchmark, its
+ * parameters as an object and a primaryMetric with the mean score in operations
+ * (letters for the message benchmarks) per microsecond.  As in JMH, scoreError is the
+ * half-width of the 99.9% confidence interval of the mean, from Student's t
+ * distribution, and rawData holds the score of each iteration.  Given the JSON of an
+ * earlier run with --baseline, the change from it is printed for each benchmark, so
+ * a change to RotorCage can be checked against the tree before it.
+ *
+ * Usage:
+ *  java ECMBench [--text data/test.txt] [--out results.json] [--baseline old.json]
+ *                [--warmup 3] [--iterations 5] [--time 500] [--rotors seed] [--forks 1]
+ *
+ * --time is the length of each iteration in milliseconds.  --forks 0 runs every
+ * benchmark in this JVM, which is quicker but no baseline.  The JSON goes to
+ * standard output if there is no --out.  --rotors runs everything on a rotor set made by the
+ * internal method from seed, see ECMRotorSet.generate(), in place of Rotor.WIRING.
+ *
+ ***********************************************************************/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ECMBench {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+    static final int MESSAGE_SIZES[] = {1000, 100000, 10000000};
+    static final int BATCH_LANES = 1024;     // machines in the ECMBatch benchmark
+
+    // Student's t for a two sided 99.9% interval, T999[df] for df degrees of freedom up
+    // to 30; past that the value for 30 is used, which is a little wide.
+    static final double T999[] = {Double.NaN,
+        636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+        4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+        3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646
+        };
+
+    static volatile long sink;      // results go here so the work is not optimized away
+
+    int warmup = 3;                 // untimed iterations
+    int iterations = 5;             // timed iterations
+    long time = 500;                // milliseconds in each iteration
+    int forks = 1;                  // 0 to run every benchmark in this JVM
+    int select = -1;                // in a forked JVM, the number of its benchmark
+    int count;                      // benchmarks met so far by runAll()
+    ECMRotorSet rotors = ECMRotorSet.STANDARD;          // the rotors of every benchmark
+    List<String> results = new ArrayList<String>();     // JSON records
+    Map<String, Double> scores = new LinkedHashMap<String, Double>();
+
+
+    public static void main(String args[]) throws IOException {
+        ECMBench bench = new ECMBench();
+        String text = "data/test.txt", out = null, baseline = null;
+        int i;
+
+        for (i = 0; i < args.length - 1; i += 2) {
+            if (args[i].equals("--text")) {
+                text = args[i + 1];
+                }
+            else if (args[i].equals("--out")) {
+                out = args[i + 1];
+                }
+            else if (args[i].equals("--baseline")) {
+                baseline = args[i + 1];
+                }
+            else if (args[i].equals("--warmup")) {
+                bench.warmup = Integer.parseInt(args[i + 1]);
+                }
+            else if (args[i].equals("--iterations")) {
+                bench.iterations = Integer.parseInt(args[i + 1]);
+                }
+            else if (args[i].equals("--time")) {
+                bench.time = Long.parseLong(args[i + 1]);
+                }
+            else if (args[i].equals("--rotors")) {
+                bench.rotors = ECMRotorSet.generate(Long.parseLong(args[i + 1]));
+                }
+            else if (args[i].equals("--forks")) {
+                bench.forks = Integer.parseInt(args[i + 1]);
+                }
+            else if (args[i].equals("--select")) {
+                bench.select = Integer.parseInt(args[i + 1]);
+                }
+            else {
+                throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+
+        if ((bench.forks > 0) && (bench.select < 0)) {
+            bench.fork(args);
+            }
+        else {
+            bench.runAll(letters(new String(Files.readAllBytes(Paths.get(text)),
+                                             StandardCharsets.US_ASCII)));
+            }
+        if (bench.select >= 0) {
+            bench.report(null);     // to the JVM that forked this one
+            return;
+            }
+        bench.report(out);
+        if (baseline != null) {
+            bench.compare(new String(Files.readAllBytes(Paths.get(baseline)),
+                                     StandardCharsets.US_ASCII));
+            }
+        return;
+        }
+
+/***********************************************************************
+ * fork - Runs each benchmark in a JVM of its own.
+ *
+ * SUMMARY:
+ * Benchmark n is run by ECMBench with the same arguments and --select n, which writes
+ * its record to standard output.  The first n that writes none is past the last.
+ *
+ ***********************************************************************/
+    void fork(String args[]) throws IOException {
+        List<String> command = new ArrayList<String>();
+        BufferedReader in;
+        Process child;
+        String line;
+        boolean found = true;
+        int n, i, status;
+
+        for (n = 0; found; n++) {
+            command.clear();
+            command.add(ProcessHandle.current().info().command().orElse("java"));
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add("ECMBench");
+            for (i = 0; i < args.length; i++) {
+                command.add(args[i]);
+                }
+            command.add("--select");
+            command.add(Integer.toString(n));
+            child = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+            found = false;
+            in = new BufferedReader(new InputStreamReader(child.getInputStream(),
+                                                          StandardCharsets.US_ASCII));
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("  {")) {
+                    line = line.endsWith(",") ? line.substring(0, line.length() - 1) : line;
+                    results.add(line);
+                    scores.putAll(scores(line));
+                    found = true;
+                    }
+                }
+            in.close();
+            try {
+                status = child.waitFor();
+                }
+            catch (InterruptedException e) {
+                child.destroy();
+                throw new IOException("interrupted", e);
+                }
+            if (status != 0) {
+                throw new IOException("benchmark " + n + " exited with " + status);
+                }
+            }
+        return;
+        }
+
+/***********************************************************************
+ * letters - The letters the rotors see when text is enciphered, see ECMTape.
+ ***********************************************************************/
+    static byte[] letters(String text) {
+        ECMTape tape = new ECMTape(null, ENCRYPT, false);
+        byte out[] = new byte[text.length()];
+        int i, c, n = 0;
+
+        for (i = 0; i < text.length(); i++) {
+            c = tape.keyboard(text.charAt(i));
+            if (c >= 0) {
+                out[n++] = (byte) c;
+                }
+            }
+        byte trimmed[] = new byte[n];
+        System.arraycopy(out, 0, trimmed, 0, n);
+        return(trimmed);
+        }
+
+    RotorCage cage() {
+        RotorCage cage = new RotorCage(rotors.wiring, "0N1R2N3R4N", "5N6N7R8N9N",
+                                       "0N1N2R3N4N");
+
+        cage.setCipherBankPos("ABCDE");
+        cage.setControlBankPos("OOOOO");
+        cage.setIndexBankPos("31415");
+        return(cage);
+        }
+
+/***********************************************************************
+ * runAll - Runs every benchmark.
+ ***********************************************************************/
+    void runAll(final byte text[]) {
+        final RotorCage cage = cage();
+        final RotorCage bank = cage();
+        final CipherRotor cipher = cage.cipherBank[1];
+        final ControlRotor control = cage.controlBank[2];
+        final IndexRotor index = cage.indexBank[2];
+        int s;
+
+        run("Rotor.rotCW", null, new ECMBenchCase() {
+            long run(int reps) {
+                long sum = 0;
+                for (int i = 0; i < reps; i++) {
+                    sum += cipher.rotCW();
+                    }
+                return(sum);
+                }
+            });
+        run("Rotor.rotCCW", null, new ECMBenchCase() {
+            long run(int reps) {
+                long sum = 0;
+                for (int i = 0; i < reps; i++) {
+                    sum += cipher.rotCCW();
+                    }
+                return(sum);
+                }
+            });
+        run("CipherRotor.cipherEncPath", null, new ECMBenchCase() {
+            long run(int reps) {
+                int c = 0;
+                for (int i = 0; i < reps; i++) {
+                    cipher.pos = i % 26;
+                    c = cipher.cipherEncPath(c);
+                    }
+                return(c);
+                }
+            });
+        run("CipherRotor.cipherDecPath", null, new ECMBenchCase() {
+            long run(int reps) {
+                int c = 0;
+                for (int i = 0; i < reps; i++) {
+                    cipher.pos = i % 26;
+                    c = cipher.cipherDecPath(c);
+                    }
+                return(c);
+                }
+            });
+        run("ControlRotor.controlPath", null, new ECMBenchCase() {
+            long run(int reps) {
+                int c = 0;
+                for (int i = 0; i < reps; i++) {
+                    control.pos = i % 26;
+                    c = control.controlPath(c);
+                    }
+                return(c);
+                }
+            });
+        run("IndexRotor.indexPath", null, new ECMBenchCase() {
+            long run(int reps) {
+                int c = 0;
+                for (int i = 0; i < reps; i++) {
+                    index.pos = i % 10;
+                    c = index.indexPath(c);
+                    }
+                return(c);
+                }
+            });
+
+        // Bank paths, the cipher bank at a fixed position and then with a rotor moving
+        // between letters.
+        run("RotorCage.cipherBankPath", "rotor=fixed", new ECMBenchCase() {
+            long run(int reps) {
+                int x = 0;
+                for (int i = 0; i < reps; i++) {
+                    x = bank.cipherBankPath(ENCRYPT, x);
+                    }
+                return(x);
+                }
+            });
+        run("RotorCage.cipherBankPath", "rotor=stepping", new ECMBenchCase() {
+            long run(int reps) {
+                int x = 0;
+                for (int i = 0; i < reps; i++) {
+                    bank.cipherBank[i % 5].rotCW();
+                    x = bank.cipherBankPath(ENCRYPT, x);
+                    }
+                return(x);
+                }
+            });
+        run("RotorCage.cipherBankWalk", "rotor=stepping", new ECMBenchCase() {
+            long run(int reps) {
+                int x = 0;
+                for (int i = 0; i < reps; i++) {
+                    bank.cipherBank[i % 5].rotCW();
+                    x = bank.cipherBankWalk(ENCRYPT, x);
+                    }
+                return(x);
+                }
+            });
+        run("RotorCage.controlBankPath", null, new ECMBenchCase() {
+            long run(int reps) {
+                int x = 0;
+                for (int i = 0; i < reps; i++) {
+                    bank.controlBankUpdate();
+                    x = bank.controlBankPath((x + i) % 26);
+                    }
+                return(x);
+                }
+            });
+        run("RotorCage.indexBankPath", null, new ECMBenchCase() {
+            long run(int reps) {
+                int x = 0;
+                for (int i = 0; i < reps; i++) {
+                    x = bank.indexBankPath((x + i) % 10);
+                    }
+                return(x);
+                }
+            });
+        run("RotorCage.cipherBankUpdate", "machine=CSP889", new ECMBenchCase() {
+            long run(int reps) {
+                for (int i = 0; i < reps; i++) {
+                    bank.cipherBankUpdate(CSP889);
+                    bank.controlBankUpdate();
+                    }
+                return(bank.cipherBank[0].pos);
+                }
+            });
+        run("RotorCage.cipherBankUpdate", "machine=CSP2900", new ECMBenchCase() {
+            long run(int reps) {
+                for (int i = 0; i < reps; i++) {
+                    bank.cipherBankUpdate(CSP2900);
+                    bank.controlBankUpdate();
+                    }
+                return(bank.cipherBank[0].pos);
+                }
+            });
+
+        // Whole messages.
+        for (s = 0; s < MESSAGE_SIZES.length; s++) {
+            if (!selected(3)) {
+                count += 3;         // not in this JVM, skip building the message
+                continue;
+                }
+            final byte message[] = repeat(text, MESSAGE_SIZES[s]);
+            final byte out[] = new byte[message.length];
+            final ECMEngine plain = new ECMEngine(cage(), CSP889);
+            final ECMEngine compiled = new ECMEngine(cage(), CSP889);
+
+            compiled.setCompiled(true);
+            compiled.encrypt(message, 0, 1, out, 0);    // build the step table and counts
+            compiled.parallelEncrypt(message, 0, 1, out, 0);
+
+            runMessage("ECMEngine.encrypt", "plain", message, new ECMBenchCase() {
+                long run(int reps) {
+                    for (int i = 0; i < reps; i++) {
+                        plain.encrypt(message, 0, message.length, out, 0);
+                        }
+                    return(out[0]);
+                    }
+                });
+            runMessage("ECMEngine.encrypt", "compiled", message, new ECMBenchCase() {
+                long run(int reps) {
+                    for (int i = 0; i < reps; i++) {
+                        compiled.encrypt(message, 0, message.length, out, 0);
+                        }
+                    return(out[0]);
+                    }
+                });
+            runMessage("ECMEngine.parallelEncrypt", "compiled", message, new ECMBenchCase() {
+                long run(int reps) {
+                    for (int i = 0; i < reps; i++) {
+                        compiled.parallelEncrypt(message, 0, message.length, out, 0);
+                        }
+                    return(out[0]);
+                    }
+                });
+            }
+
+        // A batch of machines, a letter on each lane, lane by lane and then with the
+        // Vector API if it is available.
+        runBatch(new ECMBatch(rotors, CSP889, BATCH_LANES));
+        if (ECMBatch.vectorAvailable()) {
+            runBatch(ECMBatch.create(rotors, CSP889, BATCH_LANES));
+            }
+
+        // The 26^5 keys of one cipher bank order against a crib, counted in keys.
+        runSearch(false);
+        runSearch(true);
+        return;
+        }
+
+    void runSearch(final boolean bitslice) {
+        final String crib = "ATTACKZATZDAWNZ";
+        final int order[] = {3, 1, 0, 2, 4};
+        final ECMKeySearch search;
+        ECMBenchCase keys;
+        ECMEngine engine;
+
+        if (!selected(1)) {
+            count++;
+            return;
+            }
+        engine = new ECMEngine(new RotorCage(rotors.wiring, "3N1R0N2N4R", "5N6N7R8N9N",
+                                             "0N1N2R3N4N"), CSP889);
+        engine.setPositions("ABCDE", "OOOOO", "31415");
+        search = new ECMKeySearch(rotors, crib, engine.encrypt(crib), CSP889, "5N6N7R8N9N",
+                                  "OOOOO", "0N1N2R3N4N", "31415");
+        keys = new ECMBenchCase() {
+            long run(int reps) {
+                final long found[] = new long[1];
+                for (int i = 0; i < reps; i++) {
+                    if (bitslice) {
+                        search.searchOrderBitslice(order, 0x02, hit -> found[0]++);
+                        }
+                    else {
+                        search.searchOrder(order, 0x02, hit -> found[0]++);
+                        }
+                    }
+                return(found[0]);
+                }
+            };
+        keys.scale = 26 * 26 * 26 * 26 * 26;
+        run("ECMKeySearch.searchOrder", "check=" + (bitslice ? "bitslice" : "scalar"), keys);
+        return;
+        }
+
+    void runBatch(final ECMBatch batch) {
+        final int column[] = new int[BATCH_LANES];
+        ECMBenchCase lanes = new ECMBenchCase() {
+            long run(int reps) {
+                for (int i = 0; i < reps; i++) {
+                    batch.cycle(ENCRYPT, column, column);
+                    }
+                return(column[0]);
+                }
+            };
+
+        lanes.scale = BATCH_LANES;
+        run("ECMBatch.cycle", "batch=" + batch.getClass().getName() + ",lanes=" + BATCH_LANES,
+            lanes);
+        return;
+        }
+
+    static byte[] repeat(byte text[], int size) {
+        byte out[] = new byte[size];
+        int i;
+
+        for (i = 0; i < size; i++) {
+            out[i] = text[i % text.length];
+            }
+        return(out);
+        }
+
+    // Whether one of the next n benchmarks is to be run in this JVM.
+    boolean selected(int n) {
+
+        return((select < 0) || ((select >= count) && (select < count + n)));
+        }
+
+    void runMessage(String name, String mode, byte message[], ECMBenchCase bench) {
+        bench.scale = message.length;
+        run(name, "mode=" + mode + ",size=" + message.length, bench);
+        return;
+        }
+
+/***********************************************************************
+ * run - Times one benchmark.
+ *
+ * SUMMARY:
+ * First finds a number of repetitions that takes about a tenth of an iteration, then
+ * runs the warmup iterations and the timed iterations, each repeating the batch until
+ * the iteration time is up.  params is null or "name=value,name=value".  In a forked
+ * JVM every benchmark but the one selected is passed over.
+ *
+ ***********************************************************************/
+    void run(String name, String params, ECMBenchCase bench) {
+        StringBuilder record = new StringBuilder(), raw = new StringBuilder();
+        int reps = 1, i;
+        long start, elapsed, ops;
+        double score[] = new double[iterations];
+        double mean = 0, var = 0, error;
+        String field[];
+
+        if (!selected(1)) {
+            count++;
+            return;
+            }
+        count++;
+        for (;;) {
+            start = System.nanoTime();
+            sink += bench.run(reps);
+            if ((System.nanoTime() - start) * 10 > time * 1000000L || reps >= (1 << 30)) {
+                break;
+                }
+            reps *= 2;
+            }
+        for (i = -warmup; i < iterations; i++) {
+            ops = 0;
+            start = System.nanoTime();
+            do {
+                sink += bench.run(reps);
+                ops += reps;
+                elapsed = System.nanoTime() - start;
+                } while (elapsed < time * 1000000L);
+            if (i >= 0) {
+                score[i] = (double) ops * bench.scale * 1000.0 / elapsed;   // ops per microsecond
+                mean += score[i];
+                }
+            }
+        mean /= iterations;
+        for (i = 0; i < iterations; i++) {
+            var += (score[i] - mean) * (score[i] - mean);
+            raw.append((i == 0) ? "" : ", ").append(number(score[i]));
+            }
+        error = Double.NaN;
+        if (iterations > 1) {
+            var /= iterations - 1;
+            error = T999[Math.min(iterations - 1, T999.length - 1)] * Math.sqrt(var / iterations);
+            }
+
+        record.append("  {\"benchmark\": \"").append(name)
+            .append("\", \"mode\": \"thrpt\", \"threads\": 1, \"forks\": ").append(forks)
+            .append(", \"jvm\": \"").append(json(System.getProperty("java.home")))
+            .append("\", \"jdkVersion\": \"").append(System.getProperty("java.version"))
+            .append("\", ")
+            .append("\"warmupIterations\": ").append(warmup)
+            .append(", \"warmupTime\": \"").append(time).append(" ms\", ")
+            .append("\"measurementIterations\": ").append(iterations)
+            .append(", \"measurementTime\": \"").append(time).append(" ms\", ");
+        if (params != null) {
+            record.append("\"params\": {");
+            field = params.split(",");
+            for (i = 0; i < field.length; i++) {
+                record.append((i == 0) ? "\"" : ", \"")
+                    .append(field[i].replaceFirst("=", "\": \"")).append('"');
+                }
+            record.append("}, ");
+            }
+        record.append("\"primaryMetric\": {\"score\": ").append(number(mean))
+            .append(", \"scoreError\": ").append(number(error))
+            .append(", \"scoreConfidence\": [").append(number(mean - error)).append(", ")
+            .append(number(mean + error)).append("], \"scoreUnit\": \"ops/us\", ")
+            .append("\"rawData\": [[").append(raw).append("]]}, \"secondaryMetrics\": {}}");
+
+        String key = (params == null) ? name : name + "[" + params + "]";
+        scores.put(key, mean);
+        results.add(record.toString());
+        System.err.println(String.format(Locale.ROOT, "%-55s %12.3f \u00b1 %.3f ops/us", key,
+                                         mean, error));
+        return;
+        }
+
+    static String json(String x) {
+
+        return(x.replace("\\", "\\\\").replace("\"", "\\\""));
+        }
+
+    // A score for the JSON, which has no NaN, so JMH writes it as the string "NaN".
+    static String number(double x) {
+
+        return(Double.isNaN(x) ? "\"NaN\"" : String.format(Locale.ROOT, "%.4f", x));
+        }
+
+/***********************************************************************
+ * report - Writes the results as a JSON array.
+ ***********************************************************************/
+    void report(String out) throws IOException {
+        PrintStream ps = (out == null) ? System.out : new PrintStream(out, "US-ASCII");
+        int i;
+
+        ps.println("[");
+        for (i = 0; i < results.size(); i++) {
+            ps.println(results.get(i) + ((i < results.size() - 1) ? "," : ""));
+            }
+        ps.println("]");
+        if (out != null) {
+            ps.close();
+            }
+        return;
+        }
+
+/***********************************************************************
+ * compare - Prints the change of each score from an earlier report.
+ ***********************************************************************/
+    void compare(String baseline) {
+        Map<String, Double> before = scores(baseline);
+        Double now;
+
+        for (String key : before.keySet()) {
+            now = scores.get(key);
+            if ((now != null) && (before.get(key) > 0)) {
+                System.err.println(String.format(Locale.ROOT, "%-55s %+8.1f%%", key,
+                                                 (now / before.get(key) - 1) * 100));
+                }
+            }
+        return;
+        }
+
+/***********************************************************************
+ * scores - The score of each benchmark in a report, by name[params].
+ *
+ * SUMMARY:
+ * The report is read as written by report(), a record to a line.
+ *
+ ***********************************************************************/
+    static Map<String, Double> scores(String report) {
+        Map<String, Double> out = new LinkedHashMap<String, Double>();
+        Pattern p = Pattern.compile("\"benchmark\": \"([^\"]*)\".*?(\"params\": \\{([^}]*)\\}, )?"
+            + "\"primaryMetric\": \\{\"score\": ([-0-9.Ee]+)");
+        Pattern pair = Pattern.compile("\"([^\"]*)\": \"([^\"]*)\"");
+        Matcher m = p.matcher(report), q;
+        StringBuilder params;
+        String key;
+
+        while (m.find()) {
+            key = m.group(1);
+            if (m.group(3) != null) {
+                params = new StringBuilder();
+                q = pair.matcher(m.group(3));
+                while (q.find()) {
+                    params.append((params.length() == 0) ? "" : ",")
+                        .append(q.group(1)).append('=').append(q.group(2));
+                    }
+                key += "[" + params + "]";
+                }
+            out.put(key, Double.parseDouble(m.group(4)));
+            }
+        return(out);
+        }
+
+    }   // end of ECMBench
+
+
+/***********************************************************************
+ * ECMBenchCase - One benchmark, run() does the operation reps times and returns
+ * something that depends on the result.  scale is the number of operations counted
+ * for each repetition.
+ ***********************************************************************/
+abstract class ECMBenchCase {
+    long scale = 1;
+
+    abstract long run(int reps);
+
+    }   // end of ECMBenchCase
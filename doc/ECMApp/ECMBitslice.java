@@ -0,0 +1,421 @@
+/***********************************************************************
+ * ECMBitslice - Bitsliced cipher bank, 64 machines to a long.
+ *
+ * SUMMARY:
+ * Crib checking asks, for many cipher bank keys at once, which of them take a crib
+ * letter to its cipher letter.  ECMBitslice packs 64 of those keys into the bits of a
+ * long: a letter, 0-25, of each of the 64 lanes is held as 5 bit planes, plane j
+ * having bit lane set if bit j of that lane's letter is set.  The rotor positions are
+ * held the same way, so each lane is a different starting position of the same
+ * cipher bank order.
+ *
+ * CipherRotor.compile() builds each rotor from its wiring and position as
+ *
+ *  normal:     enc = (LEFT[(in + p) % 26] - p) % 26    dec = the same with RIGHT
+ *  reversed:   enc = (p - RIGHT[(p - in) % 26]) % 26   dec = the same with LEFT
+ *
+ * Here those are boolean circuits on the planes: a 5 bit adder followed by adding 38
+ * to find the sums of 26 or more and take 26 off them, a subtraction as the addition
+ * of 26 - b, and a wiring lookup as a one-hot decode of the 26 letters ORed into the
+ * bits of each one's wiring output.  Each gate is one long operation, for all 64
+ * lanes, and there are no table lookups or branches on the letters.
+ *
+ * bankPath() is cipherBankPath() for the 64 lanes and check() runs a crib against
+ * them, dropping lanes as they fail.  main() checks both against RotorCage.  check()
+ * is the crib test of ECMKeySearch.searchOrderBitslice(), see there for how it
+ * compares with the key by key test.
+ *
+ ***********************************************************************/
+
+import java.util.Random;
+
+public class ECMBitslice {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+    static final int LANES = 64;
+
+    final boolean reversed[] = new boolean[5];
+    final int encWiring[][] = new int[5][], decWiring[][] = new int[5][];
+    final long pos[][] = new long[5][5];        // [rotor][bit]
+    final long negPos[][] = new long[5][5];     // (26 - pos) % 26
+
+    // Scratch planes, so nothing is allocated per letter.
+    final long t[] = new long[5], u[] = new long[5], w[] = new long[5];
+    final long p[][] = new long[5][5], np[][] = new long[5][5];
+    final long x[] = new long[5], want[] = new long[5];
+    final long lo[] = new long[8], hi[] = new long[4];     // for wire()
+
+
+/***********************************************************************
+ * ECMBitslice - Constructor
+ *
+ * SUMMARY:
+ * cipherOrder is the order of the cipher bank, as for RotorCage, the same for all
+ * the lanes, its rotor numbers of rotors, or of Rotor.WIRING if none is given.  All
+ * lanes start at position 0.
+ *
+ ***********************************************************************/
+    public ECMBitslice(String cipherOrder) {
+        this(ECMRotorSet.STANDARD, cipherOrder);
+        }
+
+    public ECMBitslice(ECMRotorSet rotors, String cipherOrder) {
+        CipherRotor rotor;
+        int r;
+
+        for (r = 0; r < 5; r++) {
+            rotor = new CipherRotor(rotors.wiring[ECMKey.rotor(cipherOrder, r)]);
+            reversed[r] = cipherOrder.charAt(r * 2 + 1) == 'R';
+            encWiring[r] = reversed[r] ? rotor.cipherRotor[Rotor.RIGHT]
+                                       : rotor.cipherRotor[Rotor.LEFT];
+            decWiring[r] = reversed[r] ? rotor.cipherRotor[Rotor.LEFT]
+                                       : rotor.cipherRotor[Rotor.RIGHT];
+            }
+        negate(pos[0], negPos[0]);
+        for (r = 1; r < 5; r++) {
+            System.arraycopy(negPos[0], 0, negPos[r], 0, 5);
+            }
+        }
+
+/***********************************************************************
+ * setPositions - Sets the cipher rotor positions of one lane, e.g. "ABCDE".
+ ***********************************************************************/
+    public void setPositions(int lane, String posString) {
+        int r;
+
+        for (r = 0; r < 5; r++) {
+            set(pos[r], lane, ECMEngine.LETTER_INDEX[posString.charAt(r)]);
+            negate(pos[r], negPos[r]);
+            }
+        return;
+        }
+
+/***********************************************************************
+ * load - Sets the positions of lanes 0 to n - 1 at once, start[r][lane] 0-25.
+ ***********************************************************************/
+    void load(int start[][], int n) {
+        int r, j, lane;
+        long plane;
+
+        for (r = 0; r < 5; r++) {
+            for (j = 0; j < 5; j++) {
+                plane = 0;
+                for (lane = 0; lane < n; lane++) {
+                    plane |= (long) ((start[r][lane] >> j) & 1) << lane;
+                    }
+                pos[r][j] = plane;
+                }
+            negate(pos[r], negPos[r]);
+            }
+        return;
+        }
+
+    public String positions(int lane) {
+        char out[] = new char[5];
+        int r;
+
+        for (r = 0; r < 5; r++) {
+            out[r] = ECMEngine.LETTERS[get(pos[r], lane)];
+            }
+        return(new String(out));
+        }
+
+/***********************************************************************
+ * set, get, broadcast - Between letters and bit planes.
+ ***********************************************************************/
+    static void set(long planes[], int lane, int letter) {
+        int j;
+
+        for (j = 0; j < 5; j++) {
+            planes[j] = (planes[j] & ~(1L << lane)) | ((long) ((letter >> j) & 1) << lane);
+            }
+        return;
+        }
+
+    static int get(long planes[], int lane) {
+        int j, letter = 0;
+
+        for (j = 0; j < 5; j++) {
+            letter |= (int) ((planes[j] >>> lane) & 1) << j;
+            }
+        return(letter);
+        }
+
+    static void broadcast(int letter, long planes[]) {
+        int j;
+
+        for (j = 0; j < 5; j++) {
+            planes[j] = -((letter >> j) & 1L);
+            }
+        return;
+        }
+
+/***********************************************************************
+ * add - out = (a + b) % 26 on each lane, a 0-25 and b 0-26.
+ *
+ * SUMMARY:
+ * The 6 bit sum s is at most 51.  s + 38 carries out of 6 bits just when s >= 26, and
+ * its low 5 bits are then s - 26.  out may be a or b.
+ *
+ ***********************************************************************/
+    static void add(long a[], long b[], long out[]) {
+        long s0, s1, s2, s3, s4, s5, c, d0, d1, d2, d3, d4, big;
+
+        s0 = a[0] ^ b[0];                   c = a[0] & b[0];
+        s1 = a[1] ^ b[1] ^ c;               c = (a[1] & b[1]) | (c & (a[1] ^ b[1]));
+        s2 = a[2] ^ b[2] ^ c;               c = (a[2] & b[2]) | (c & (a[2] ^ b[2]));
+        s3 = a[3] ^ b[3] ^ c;               c = (a[3] & b[3]) | (c & (a[3] ^ b[3]));
+        s4 = a[4] ^ b[4] ^ c;               c = (a[4] & b[4]) | (c & (a[4] ^ b[4]));
+        s5 = c;
+
+        // + 38 = 100110 binary.
+        d0 = s0;                            // + 0, no carry
+        d1 = ~s1;                           c = s1;
+        d2 = ~(s2 ^ c);                     c = s2 | c;
+        d3 = s3 ^ c;                        c = s3 & c;
+        d4 = s4 ^ c;                        c = s4 & c;
+        big = s5 | c;                       // carry out of + 32
+
+        out[0] = s0 ^ ((s0 ^ d0) & big);
+        out[1] = s1 ^ ((s1 ^ d1) & big);
+        out[2] = s2 ^ ((s2 ^ d2) & big);
+        out[3] = s3 ^ ((s3 ^ d3) & big);
+        out[4] = s4 ^ ((s4 ^ d4) & big);
+        return;
+        }
+
+/***********************************************************************
+ * negate - out = 26 - a on each lane, 1-26, which add() treats as -a.
+ *
+ * SUMMARY:
+ * 26 - a = ~a + 27 in 5 bits.
+ *
+ ***********************************************************************/
+    static void negate(long a[], long out[]) {
+        long n0 = ~a[0], n1 = ~a[1], n2 = ~a[2], n3 = ~a[3], n4 = ~a[4], c;
+
+        // + 27 = 11011 binary.
+        out[0] = ~n0;                       c = n0;
+        out[1] = ~(n1 ^ c);                 c = n1 | c;
+        out[2] = n2 ^ c;                    c = n2 & c;
+        out[3] = ~(n3 ^ c);                 c = n3 | c;
+        out[4] = ~(n4 ^ c);
+        return;
+        }
+
+/***********************************************************************
+ * wire - out = wiring[a] on each lane, by a one-hot decode of a.
+ ***********************************************************************/
+    void wire(int wiring[], long a[], long out[]) {
+        long n0 = ~a[0], n1 = ~a[1], n2 = ~a[2], n3 = ~a[3], n4 = ~a[4];
+        long o0 = 0, o1 = 0, o2 = 0, o3 = 0, o4 = 0, m;
+        int letter, o;
+
+        // The letter is decoded as its low 3 bits and its high 2 bits.
+        lo[0] = n2 & n1 & n0;       lo[1] = n2 & n1 & a[0];
+        lo[2] = n2 & a[1] & n0;     lo[3] = n2 & a[1] & a[0];
+        lo[4] = a[2] & n1 & n0;     lo[5] = a[2] & n1 & a[0];
+        lo[6] = a[2] & a[1] & n0;   lo[7] = a[2] & a[1] & a[0];
+        hi[0] = n4 & n3;            hi[1] = n4 & a[3];
+        hi[2] = a[4] & n3;          hi[3] = a[4] & a[3];
+
+        for (letter = 0; letter < 26; letter++) {
+            m = lo[letter & 7] & hi[letter >> 3];
+            o = wiring[letter];
+            o0 |= m & -(o & 1);
+            o1 |= m & -((o >> 1) & 1);
+            o2 |= m & -((o >> 2) & 1);
+            o3 |= m & -((o >> 3) & 1);
+            o4 |= m & -((o >> 4) & 1);
+            }
+        out[0] = o0; out[1] = o1; out[2] = o2; out[3] = o3; out[4] = o4;
+        return;
+        }
+
+/***********************************************************************
+ * rotorPath - CipherRotor.cipherEncPath() or cipherDecPath() of one rotor.
+ *
+ * SUMMARY:
+ * pp and npp are the rotor's position and its negation on each lane.  out may be in.
+ *
+ ***********************************************************************/
+    void rotorPath(boolean direction, int r, long pp[], long npp[], long in[], long out[]) {
+        int wiring[] = (direction == ENCRYPT) ? encWiring[r] : decWiring[r];
+
+        if (reversed[r]) {          // (p - wiring[(p - in) % 26]) % 26
+            negate(in, t);
+            add(pp, t, t);
+            wire(wiring, t, u);
+            negate(u, u);
+            add(pp, u, out);
+            }
+        else {                      // (wiring[(in + p) % 26] - p) % 26
+            add(in, pp, t);
+            wire(wiring, t, u);
+            add(u, npp, out);
+            }
+        return;
+        }
+
+/***********************************************************************
+ * bankPath - RotorCage.cipherBankPath() on each lane, at the lane's positions.
+ ***********************************************************************/
+    public void bankPath(boolean direction, long in[], long out[]) {
+
+        bankPath(direction, pos, negPos, in, out);
+        return;
+        }
+
+    void bankPath(boolean direction, long pp[][], long npp[][], long in[], long out[]) {
+        int r;
+
+        System.arraycopy(in, 0, w, 0, 5);
+        if (direction == ENCRYPT) {
+            for (r = 0; r <= 4; r++) {
+                rotorPath(ENCRYPT, r, pp[r], npp[r], w, w);
+                }
+            }
+        else {
+            for (r = 4; r >= 0; r--) {
+                rotorPath(DECRYPT, r, pp[r], npp[r], w, w);
+                }
+            }
+        System.arraycopy(w, 0, out, 0, 5);
+        return;
+        }
+
+/***********************************************************************
+ * check - Which lanes encipher a crib to its cipher text.
+ *
+ * SUMMARY:
+ * plain and cipher are letters 0-25.  Before letter i, cipher rotor r has turned to
+ * its starting position plus offset[r][i], mod 26, the same on all lanes, as
+ * ECMKeySearch works out from the control and index banks.  Returns the lanes, from
+ * those in alive, that match every letter from from on.  Stops as soon as none are
+ * left.
+ *
+ ***********************************************************************/
+    public long check(int plain[], int cipher[], int offset[][], long alive) {
+
+        return(check(plain, cipher, offset, 0, alive));
+        }
+
+    long check(int plain[], int cipher[], int offset[][], int from, long alive) {
+        int i, r, j;
+        long eq;
+
+        for (i = from; (i < plain.length) && (alive != 0); i++) {
+            for (r = 0; r < 5; r++) {
+                broadcast(offset[r][i], x);
+                add(pos[r], x, p[r]);
+                negate(p[r], np[r]);
+                }
+            broadcast(plain[i], x);
+            bankPath(ENCRYPT, p, np, x, x);
+            broadcast(cipher[i], want);
+            eq = -1L;
+            for (j = 0; j < 5; j++) {
+                eq &= ~(x[j] ^ want[j]);
+                }
+            alive &= eq;
+            }
+        return(alive);
+        }
+
+/***********************************************************************
+ * main - Checks ECMBitslice against RotorCage.cipherBankPath().
+ *
+ * Usage:
+ *  java ECMBitslice [orders]
+ *
+ * Runs random orders, positions and letters through both, in both directions, and
+ * a random crib through check(), then reports the lanes per second of bankPath().
+ *
+ ***********************************************************************/
+    public static void main(String args[]) {
+        Random random = new Random(1);
+        int orders = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int n, lane, r, i, bad = 0, letters[] = new int[LANES];
+        long in[] = new long[5], out[] = new long[5], alive, start;
+        boolean direction;
+        String order, position[] = new String[LANES];
+        StringBuilder s = new StringBuilder();
+        RotorCage cage;
+        ECMBitslice slice = null;
+
+        for (n = 0; n < orders; n++) {
+            s.setLength(0);
+            for (r = 0; r < 5; r++) {
+                s.append((char) ('0' + random.nextInt(Rotor.WIRING.length)));
+                s.append(random.nextBoolean() ? 'R' : 'N');
+                }
+            order = s.toString();
+            slice = new ECMBitslice(order);
+            direction = random.nextBoolean();
+            for (lane = 0; lane < LANES; lane++) {
+                s.setLength(0);
+                for (r = 0; r < 5; r++) {
+                    s.append(ECMEngine.LETTERS[random.nextInt(26)]);
+                    }
+                position[lane] = s.toString();
+                slice.setPositions(lane, position[lane]);
+                letters[lane] = random.nextInt(26);
+                set(in, lane, letters[lane]);
+                }
+            slice.bankPath(direction, in, out);
+            for (lane = 0; lane < LANES; lane++) {
+                cage = new RotorCage(order, "5N6N7N8N9N", "0N1N2N3N4N");
+                cage.setCipherBankPos(position[lane]);
+                if (cage.cipherBankPath(direction, letters[lane]) != get(out, lane)) {
+                    bad++;
+                    }
+                if (!slice.positions(lane).equals(position[lane])) {
+                    bad++;
+                    }
+                }
+            }
+        System.out.println("bankPath: " + orders * LANES + " lanes, " + bad + " wrong");
+        bad = checkCrib(random);
+        System.out.println("check: " + bad + " wrong");
+
+        for (i = 0; i < 3; i++) {
+            start = System.nanoTime();
+            for (n = 0; n < 1000000; n++) {
+                slice.bankPath(ENCRYPT, in, in);
+                }
+            System.out.println((LANES * 1000000L * 1000 / (System.nanoTime() - start))
+                + " M lanes/s");
+            }
+        return;
+        }
+
+    // Enciphers a crib with an ECMEngine and checks that check() keeps just the lanes
+    // at the right starting position.  Returns the number of lanes check() got wrong.
+    static int checkCrib(Random random) {
+        String cipherOrder = "3N1R0N2N4R", cipherPos = "QWERT";
+        String controlOrder = "5N6R7N8N9R", controlPos = "MNOPQ";
+        String indexOrder = "0N1N2R3N4N", indexPos = "27182";
+        String crib = "ATTACKZATZDAWN", text;
+        ECMEngine engine = new ECMEngine(cipherOrder, controlOrder, indexOrder, CSP2900);
+        ECMKeySearch search;
+        ECMBitslice slice = new ECMBitslice(cipherOrder);
+        StringBuilder s = new StringBuilder();
+        int lane, r, bad = 0, right = random.nextInt(LANES);
+        long alive;
+
+        engine.setPositions(cipherPos, controlPos, indexPos);
+        text = engine.encrypt(crib);
+        search = new ECMKeySearch(crib, text, CSP2900, controlOrder, controlPos,
+                                  indexOrder, indexPos);
+        for (lane = 0; lane < LANES; lane++) {
+            s.setLength(0);
+            for (r = 0; r < 5; r++) {
+                s.append(ECMEngine.LETTERS[random.nextInt(26)]);
+                }
+            slice.setPositions(lane, (lane == right) ? cipherPos : s.toString());
+            }
+        alive = slice.check(search.plain, search.cipher, search.offsets(0x12), -1L);
+        return(Long.bitCount(alive ^ (1L << right)));
+        }
+
+    }   // end of ECMBitslice
@@ -0,0 +1,358 @@
+/***********************************************************************
+ * ECMCheck - Checks every engine path against the applet's RotorCage.
+ *
+ * SUMMARY:
+ * The reference is a RotorCage stepped a letter at a time exactly as ECMApp.ECMcycle()
+ * does it: cipherBankPath(), cipherBankUpdate(), controlBankUpdate().  For each of a
+ * number of random keys, with the 10 cipher and control rotors all different, on
+ * either machine, and alternately on the applet's rotors and on a set made by the
+ * internal method, a random message is run through the reference and through
+ *
+ *  - ECMEngine, plain and compiled, in pieces of random length
+ *  - ECMEngine.seek() to a random letter, compiled, then the rest of the message
+ *  - ECMEngine.parallelEncrypt() or parallelDecrypt() after a random first piece
+ *  - ECMSession on an ECMKey of the key, in pieces of random length
+ *  - ECMBatch and the batch ECMBatch.create() picks, ECMVectorBatch if the Vector API
+ *    is there, with the key in a lane among other random keys
+ *  - ECMSolver.decipher() with the key's cipher bank
+ *
+ * and the results must be the same letter for letter.  Besides those
+ *
+ *  - ECMBitslice.bankPath() must agree with RotorCage.cipherBankPath() on 64 random
+ *    positions of the key's cipher bank, both ways
+ *  - ECMKeySearch.searchOrder() and searchOrderBitslice() must find the key's cipher
+ *    positions from a crib of the message
+ *  - on the applet's rotors, ECMEngine.seek() by ECMPeriod.period() must come back to
+ *    the starting state, and by the period over any of its prime factors must not
+ *
+ * The message is deciphered or enciphered at random, up to 150,000 letters so that
+ * seek() crosses whole control periods and parallelEncrypt() splits it into chunks.
+ * The check stops at the first path that differs, prints the key and where, and
+ * exits with 1.
+ *
+ * Usage:
+ *  java [--add-modules jdk.incubator.vector] ECMCheck [keys [seed]]
+ *
+ ***********************************************************************/
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ECMCheck {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+    static final int MAX_LENGTH = 150000;   // letters of a message at most
+    static final int LANES = 67;            // of a batch, not a whole number of vectors
+    static final int BATCH_LENGTH = 500;    // letters of a batch message
+    static final int CRIB = 12;             // letters of a crib
+
+    final Random random;
+    ECMPeriod key;                          // the key being checked
+    ECMRotorSet rotors;
+    String where;                           // what is being checked, for the report
+    long letters;
+
+
+    public ECMCheck(long seed) {
+        random = new Random(seed);
+        }
+
+/***********************************************************************
+ * reference - The message through a RotorCage as ECMApp.ECMcycle() does it.
+ ***********************************************************************/
+    static byte[] reference(RotorCage cage, int machine, boolean direction, byte in[]) {
+        byte out[] = new byte[in.length];
+        int i;
+
+        for (i = 0; i < in.length; i++) {
+            out[i] = (byte) ECMEngine.LETTERS[cage.cipherBankPath(direction, in[i] - 'A')];
+            cage.cipherBankUpdate(machine);
+            cage.controlBankUpdate();
+            }
+        return(out);
+        }
+
+    // A RotorCage at the key's positions, on the rotor set.
+    static RotorCage cage(ECMPeriod key, ECMRotorSet rotors) {
+        RotorCage cage = new RotorCage(rotors.wiring, key.cipherOrder, key.controlOrder,
+                                       key.indexOrder);
+
+        cage.setCipherBankPos(key.cipherPos);
+        cage.setControlBankPos(key.controlPos);
+        cage.setIndexBankPos(key.indexPos);
+        return(cage);
+        }
+
+    ECMEngine engine(boolean compiled) {
+        ECMEngine engine = new ECMEngine(cage(key, rotors), key.machine);
+
+        engine.setCompiled(compiled);
+        return(engine);
+        }
+
+    byte[] message(int length) {
+        byte text[] = new byte[length];
+        int i;
+
+        for (i = 0; i < length; i++) {
+            text[i] = (byte) ('A' + random.nextInt(26));
+            }
+        return(text);
+        }
+
+    // Fails the check if got[] is not want[] from offset on.
+    void same(byte want[], byte got[], int offset) {
+        int i;
+
+        for (i = offset; i < want.length; i++) {
+            if (want[i] != got[i]) {
+                fail("letter " + i + " is " + (char) got[i] + ", not " + (char) want[i]);
+                }
+            }
+        return;
+        }
+
+    void fail(String what) {
+        System.out.println("MISMATCH " + where + " on key " + key + " of the "
+            + ((rotors == ECMRotorSet.STANDARD) ? "applet's rotors" : "internal method rotors")
+            + ": " + what);
+        System.exit(1);
+        return;
+        }
+
+/***********************************************************************
+ * check - Checks every path on one key, see above.
+ ***********************************************************************/
+    void check(ECMPeriod key, ECMRotorSet rotors) {
+        boolean direction = random.nextBoolean();
+        byte in[] = message(1 + random.nextInt(MAX_LENGTH)), want[], out[];
+        ECMEngine engine;
+        ECMSession session;
+        int n, i, k;
+
+        this.key = key;
+        this.rotors = rotors;
+        want = reference(cage(key, rotors), key.machine, direction, in);
+        letters += in.length;
+
+        for (k = 0; k < 2; k++) {
+            where = (k == 0) ? "ECMEngine" : "ECMEngine compiled";
+            engine = engine(k == 1);
+            out = new byte[in.length];
+            for (i = 0; i < in.length; i += n) {
+                n = Math.min(in.length - i, 1 + random.nextInt(5000));
+                engine.crypt(direction, in, i, n, out, i);
+                }
+            same(want, out, 0);
+            }
+
+        where = "ECMEngine.seek";
+        engine = engine(true);
+        n = random.nextInt(in.length);
+        engine.seek(n);
+        out = new byte[in.length];
+        engine.crypt(direction, in, n, in.length - n, out, n);
+        same(want, out, n);
+
+        where = "ECMEngine.parallelCrypt";
+        engine = engine(random.nextBoolean());
+        n = random.nextInt(Math.min(in.length, 1000));
+        out = new byte[in.length];
+        engine.crypt(direction, in, 0, n, out, 0);
+        if (direction == ENCRYPT) {
+            engine.parallelEncrypt(in, n, in.length - n, out, n);
+            }
+        else {
+            engine.parallelDecrypt(in, n, in.length - n, out, n);
+            }
+        same(want, out, 0);
+        if (engine.offset() != in.length) {
+            fail("offset " + engine.offset() + ", not " + in.length);
+            }
+
+        where = "ECMSession";
+        session = new ECMKey(rotors, key.cipherOrder, key.controlOrder, key.indexOrder,
+                             key.indexPos, key.machine).session(key.cipherPos, key.controlPos);
+        out = new byte[in.length];
+        for (i = 0; i < in.length; i += n) {
+            n = Math.min(in.length - i, 1 + random.nextInt(5000));
+            session.crypt(direction, in, i, n, out, i);
+            }
+        same(want, out, 0);
+
+        checkBatch(new ECMBatch(rotors, key.machine, LANES));
+        checkBatch(ECMBatch.create(rotors, key.machine, LANES));
+        checkSolver();
+        checkBitslice();
+        checkSearch();
+        if (rotors == ECMRotorSet.STANDARD) {
+            checkPeriod();
+            }
+        return;
+        }
+
+    // The key in a random lane of the batch, random keys on the same machine in the rest.
+    void checkBatch(ECMBatch batch) {
+        boolean direction = random.nextBoolean();
+        byte in[][] = new byte[LANES][], out[][] = new byte[LANES][BATCH_LENGTH], want[][];
+        ECMPeriod lane[] = new ECMPeriod[LANES];
+        int mine = random.nextInt(LANES), l;
+
+        want = new byte[LANES][];
+        for (l = 0; l < LANES; l++) {
+            lane[l] = (l == mine) ? key : other();
+            in[l] = message(BATCH_LENGTH);
+            batch.setKey(l, lane[l].cipherOrder, lane[l].controlOrder, lane[l].indexOrder,
+                         lane[l].cipherPos, lane[l].controlPos, lane[l].indexPos);
+            want[l] = reference(cage(lane[l], rotors), key.machine, direction, in[l]);
+            }
+        batch.crypt(direction, in, out);
+        for (l = 0; l < LANES; l++) {
+            where = batch.getClass().getName() + " lane " + l + " of " + lane[l];
+            same(want[l], out[l], 0);
+            }
+        return;
+        }
+
+    // A random key on the same machine as the key being checked.
+    ECMPeriod other() {
+        ECMPeriod other = ECMPeriod.random(random);
+
+        return(new ECMPeriod(other.cipherOrder, other.controlOrder, other.indexOrder,
+                             other.cipherPos, other.controlPos, other.indexPos, key.machine));
+        }
+
+    // The solver deciphers the reference's cipher text with the key's cipher bank.
+    void checkSolver() {
+        byte plain[] = message(1 + random.nextInt(2000)), cipher[];
+        ECMSolver solver;
+        String text;
+
+        where = "ECMSolver.decipher";
+        cipher = reference(cage(key, rotors), key.machine, ENCRYPT, plain);
+        solver = new ECMSolver(rotors, new String(cipher, StandardCharsets.US_ASCII), key.machine, key.controlOrder,
+                               key.controlPos, key.indexOrder, key.indexPos);
+        text = solver.decipher(key.cipherOrder + " " + key.cipherPos);
+        same(plain, text.getBytes(StandardCharsets.US_ASCII), 0);
+        return;
+        }
+
+    // 64 random positions of the key's cipher bank, a random letter through each.
+    void checkBitslice() {
+        ECMBitslice slice = new ECMBitslice(rotors, key.cipherOrder);
+        long in[] = new long[5], out[] = new long[5];
+        int letter[] = new int[ECMBitslice.LANES];
+        String position[] = new String[ECMBitslice.LANES];
+        boolean direction;
+        RotorCage cage = cage(key, rotors);
+        int d, lane, want;
+
+        for (d = 0; d < 2; d++) {
+            direction = (d == 1) ? DECRYPT : ENCRYPT;
+            where = "ECMBitslice.bankPath " + (direction ? "decipher" : "encipher");
+            for (lane = 0; lane < ECMBitslice.LANES; lane++) {
+                position[lane] = ECMPeriod.positions(random, 'A', 26);
+                slice.setPositions(lane, position[lane]);
+                letter[lane] = random.nextInt(26);
+                ECMBitslice.set(in, lane, letter[lane]);
+                }
+            slice.bankPath(direction, in, out);
+            for (lane = 0; lane < ECMBitslice.LANES; lane++) {
+                cage.setCipherBankPos(position[lane]);
+                want = cage.cipherBankPath(direction, letter[lane]);
+                if (ECMBitslice.get(out, lane) != want) {
+                    fail("lane " + lane + " at " + position[lane] + " takes "
+                        + ECMEngine.LETTERS[letter[lane]] + " to "
+                        + ECMEngine.LETTERS[ECMBitslice.get(out, lane)] + ", not "
+                        + ECMEngine.LETTERS[want]);
+                    }
+                }
+            }
+        return;
+        }
+
+    // Both searches of the key's cipher order find its positions from a crib.
+    void checkSearch() {
+        byte plain[] = message(CRIB), cipher[];
+        ECMKeySearch search;
+        List<String> hits = new ArrayList<String>();
+        String want = key.cipherOrder + " " + key.cipherPos;
+        int order[] = new int[5], reversed = 0, r;
+
+        cipher = reference(cage(key, rotors), key.machine, ENCRYPT, plain);
+        search = new ECMKeySearch(rotors, new String(plain, StandardCharsets.US_ASCII), new String(cipher, StandardCharsets.US_ASCII),
+                                  key.machine, key.controlOrder, key.controlPos,
+                                  key.indexOrder, key.indexPos);
+        for (r = 0; r < 5; r++) {
+            order[r] = key.cipherOrder.charAt(r * 2) - '0';
+            if (key.cipherOrder.charAt(r * 2 + 1) == 'R') {
+                reversed |= 1 << r;
+                }
+            }
+        where = "ECMKeySearch.searchOrder";
+        search.searchOrder(order, reversed, hits::add);
+        if (!hits.contains(want)) {
+            fail("found " + hits + " from crib " + new String(plain, StandardCharsets.US_ASCII));
+            }
+        where = "ECMKeySearch.searchOrderBitslice";
+        hits.clear();
+        search.searchOrderBitslice(order, reversed, hits::add);
+        if (!hits.contains(want)) {
+            fail("found " + hits + " from crib " + new String(plain, StandardCharsets.US_ASCII));
+            }
+        return;
+        }
+
+    // The machine comes back to its state after the period and not after any part of it.
+    void checkPeriod() {
+        long period = key.period(), state, n, p;
+        ECMEngine engine = engine(true);
+
+        where = "ECMPeriod " + period;
+        state = ECMState.of(engine.cage());
+        engine.seek(period);
+        if (ECMState.of(engine.cage()) != state) {
+            fail("the state does not come back");
+            }
+        for (n = period, p = 2; n > 1; p++) {
+            if (p * p > n) {
+                p = n;
+                }
+            if (n % p != 0) {
+                continue;
+                }
+            while (n % p == 0) {
+                n /= p;
+                }
+            engine.seek(period / p);
+            if (ECMState.of(engine.cage()) == state) {
+                fail("the state comes back after " + period / p);
+                }
+            }
+        return;
+        }
+
+/***********************************************************************
+ * main - Checks the keys, see above.
+ ***********************************************************************/
+    public static void main(String args[]) {
+        int keys = (args.length > 0) ? Integer.parseInt(args[0]) : 50;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 1;
+        long start = System.nanoTime();
+        ECMCheck check = new ECMCheck(seed);
+        ECMRotorSet generated = ECMRotorSet.generate(seed);
+        int k;
+
+        for (k = 0; k < keys; k++) {
+            check.check(ECMPeriod.random(check.random),
+                        (k % 2 == 0) ? ECMRotorSet.STANDARD : generated);
+            }
+        System.out.println(keys + " keys, " + check.letters + " letters: every path matches"
+            + " RotorCage (" + (ECMBatch.vectorAvailable() ? "vector" : "scalar") + " batch, "
+            + (System.nanoTime() - start) / 1000000 + " ms)");
+        return;
+        }
+
+    }   // end of ECMCheck
@@ -0,0 +1,22 @@
+/***********************************************************************
+ * ECMCipher - Anything that enciphers and deciphers letters as the rotors see them.
+ *
+ * SUMMARY:
+ * Implemented by ECMEngine, on a RotorCage of its own, and by ECMSession, on a shared
+ * ECMKey, so that ECMTape and the filters built on it work with either.
+ *
+ ***********************************************************************/
+
+interface ECMCipher {
+
+/***********************************************************************
+ * crypt - Enciphers (direction false) or deciphers (true) len letters.
+ *
+ * SUMMARY:
+ * Letters A-Z or a-z are read from in[off] and A-Z written to out[outOff], out may be
+ * in.  Anything else throws IllegalArgumentException.
+ *
+ ***********************************************************************/
+    void crypt(boolean direction, byte in[], int off, int len, byte out[], int outOff);
+
+    }   // end of ECMCipher
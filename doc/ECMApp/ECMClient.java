@@ -0,0 +1,363 @@
+/***********************************************************************
+ * ECMClient - A connection to an ECMServer, and a load test for it.
+ *
+ * SUMMARY:
+ * crypt() sends one request, see ECMServer for the protocol, and returns the whole
+ * reply.  The text is sent a chunk at a time and each chunk's reply read before the
+ * next is sent, as the server expects.
+ *
+ * main() is the load test: it opens a number of sessions at once, each on its own
+ * connection and thread, virtual if the JDK has them.  When all are connected each
+ * one enciphers messages of random letters at random positions on the same day's key
+ * and times the round trips, keeping a CRC of each reply.  Only the messages that
+ * came back are timed, so a failed session does not flatter the percentiles, and
+ * one client warms the server up first so its compiling is not timed.  After
+ * the run every reply is checked against an ECMEngine on a plain RotorCage, which
+ * shares none of the server's compiled key code, and the results are held to the
+ * targets in ECMServer:
+ *
+ *  - every session connected and completed, and every reply right
+ *  - letters per second through the server at least half of what ECMSession does
+ *    on all the cores, measured here before the run
+ *  - 99th percentile round trip at most 100 ms plus three times the fair share, the
+ *    time for the server to do one message of every session at the rate it achieved
+ *
+ * It prints the letters per second and the 50th, 99th percentile and worst round
+ * trip, and PASS or FAIL for each target, and exits with 1 if any failed.  Given
+ * "local" it starts a server in the same process on a free loopback port.
+ *
+ * Usage:
+ *  java ECMClient [tcp:port|unix:path|local] [sessions] [messages] [letters]
+ *
+ ***********************************************************************/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+public class ECMClient implements Closeable {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+    static final int CHUNK = 8192;          // bytes of text sent at a time
+
+    // The key of the day for the load test.
+    static final String CIPHER_ORDER = "0N1R2N3R4N", CONTROL_ORDER = "5N6N7R8N9N";
+    static final String INDEX_ORDER = "0N1N2R3N4N", INDEX_POS = "27182";
+
+    final SocketChannel channel;
+    final DataInputStream in;
+    final DataOutputStream out;
+
+
+    public ECMClient(SocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        }
+
+    public void close() throws IOException {
+        channel.close();
+        return;
+        }
+
+/***********************************************************************
+ * crypt - Enciphers or deciphers text on the server.
+ *
+ * SUMMARY:
+ * flags are ECMServer.TAPE and GROUPS.  An error reported by the server is thrown as
+ * an IOException, and the connection is then closed.
+ *
+ ***********************************************************************/
+    public byte[] crypt(boolean direction, int machine, int flags,
+                        String cipherOrder, String controlOrder, String indexOrder,
+                        String cipherPos, String controlPos, String indexPos,
+                        byte text[]) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(text.length + text.length / 5);
+        byte reply[] = new byte[ECMTape.maxOutput(CHUNK)];
+        int i, n;
+
+        out.write((direction == DECRYPT) ? 'D' : 'E');
+        out.write(machine);
+        out.write(flags);
+        out.writeUTF(cipherOrder);
+        out.writeUTF(controlOrder);
+        out.writeUTF(indexOrder);
+        out.writeUTF(cipherPos);
+        out.writeUTF(controlPos);
+        out.writeUTF(indexPos);
+        for (i = 0; i < text.length; i += CHUNK) {
+            n = Math.min(CHUNK, text.length - i);
+            out.writeInt(n);
+            out.write(text, i, n);
+            out.flush();
+            n = reply();
+            in.readFully(reply, 0, n);
+            result.write(reply, 0, n);
+            }
+        out.writeInt(0);
+        out.flush();
+        if (reply() != 0) {
+            throw new IOException("protocol error");
+            }
+        return(result.toByteArray());
+        }
+
+    // The next reply length, or the server's error as an exception.
+    int reply() throws IOException {
+        int n = in.readInt();
+
+        if (n < 0) {
+            String message = in.readUTF();
+
+            close();
+            throw new IOException("server: " + message);
+            }
+        if (n > ECMTape.maxOutput(CHUNK)) {
+            throw new IOException("protocol error");
+            }
+        return(n);
+        }
+
+/***********************************************************************
+ * main - Load test.
+ ***********************************************************************/
+    public static void main(String args[]) throws Exception {
+        String name = (args.length > 0) ? args[0] : "local";
+        final int sessions = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+        final int messages = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+        final int letters = (args.length > 3) ? Integer.parseInt(args[3]) : 1000;
+        final long latency[] = new long[sessions * messages];
+        final long crc[] = new long[sessions * messages];
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicLong failed = new AtomicLong();
+        final CountDownLatch connected = new CountDownLatch(sessions);
+        final CountDownLatch go = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(sessions);
+        final SocketAddress address;
+        ECMServer server = null;
+        ExecutorService threads = ECMServer.threadPerTask();
+        long start, elapsed, bad, p50, p99, worst, fair;
+        double baseline, rate;
+        boolean pass = true;
+        int s, n;
+
+        baseline = baseline(letters);
+        if (name.equals("local")) {
+            server = new ECMServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                                   1024);
+            server.start();
+            address = server.address();
+            }
+        else {
+            address = ECMServer.address(name);
+            }
+        try (ECMClient client = new ECMClient(address)) {      // warm up, not timed
+            load(client, 0, 200, letters, new long[200], new AtomicInteger(), new long[200]);
+            }
+
+        for (s = 0; s < sessions; s++) {
+            final int session = s;
+            threads.execute(() -> {
+                ECMClient client = null;
+
+                try {
+                    client = new ECMClient(address);
+                    connected.countDown();
+                    go.await();
+                    load(client, session, messages, letters, latency, completed, crc);
+                    }
+                catch (Exception e) {
+                    if (failed.incrementAndGet() == 1) {
+                        System.err.println("session " + session + ": " + e);
+                        }
+                    if (client == null) {
+                        connected.countDown();
+                        }
+                    }
+                finally {
+                    try {
+                        if (client != null) {
+                            client.close();
+                            }
+                        }
+                    catch (IOException ignored) {
+                        }
+                    done.countDown();
+                    }
+                });
+            }
+        connected.await();
+        start = System.nanoTime();
+        go.countDown();
+        done.await();
+        elapsed = System.nanoTime() - start;
+        threads.shutdown();
+        threads.awaitTermination(1, TimeUnit.MINUTES);
+        if (server != null) {
+            System.out.println(server);
+            server.close();
+            }
+
+        n = completed.get();
+        bad = IntStream.range(0, sessions).parallel()
+            .mapToLong(session -> check(session, messages, letters, crc)).sum();
+        Arrays.sort(latency, 0, n);
+        p50 = (n > 0) ? latency[n / 2] : 0;
+        p99 = (n > 0) ? latency[(int) ((long) n * 99 / 100)] : 0;
+        worst = (n > 0) ? latency[n - 1] : 0;
+        rate = (double) n * letters * 1e9 / elapsed;
+        fair = (long) (sessions * letters * 1e9 / Math.max(rate, 1));
+        System.out.println(sessions + " sessions, " + messages + " messages of " + letters
+            + " letters: " + failed.get() + " sessions failed, " + n + " messages back, "
+            + bad + " wrong replies");
+        System.out.printf("%.2f M letters/s, round trip 50%% %.2f ms, 99%% %.2f ms,"
+            + " worst %.2f ms%n", rate / 1e6, p50 / 1e6, p99 / 1e6, worst / 1e6);
+
+        pass &= target("every session completed, every reply right",
+                       (failed.get() == 0) && (n == sessions * messages) && (bad == 0),
+                       failed.get() + " failed, " + bad + " wrong");
+        pass &= target("letters/s at least half of ECMSession", rate >= baseline / 2,
+                       String.format("%.2f M against %.2f M", rate / 1e6, baseline / 1e6));
+        pass &= target("99% round trip at most 100 ms + 3 x fair share",
+                       p99 <= 100000000L + 3 * fair,
+                       String.format("%.2f ms against %.2f ms", p99 / 1e6,
+                                     (100000000L + 3 * fair) / 1e6));
+        if (!pass) {
+            System.exit(1);
+            }
+        return;
+        }
+
+    static boolean target(String target, boolean met, String detail) {
+
+        System.out.println((met ? "PASS " : "FAIL ") + target + ": " + detail);
+        return(met);
+        }
+
+/***********************************************************************
+ * baseline - Letters per second of ECMSession on all the cores, with no server.
+ ***********************************************************************/
+    static double baseline(int letters) {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final ECMKey key = new ECMKey(CIPHER_ORDER, CONTROL_ORDER, INDEX_ORDER, INDEX_POS,
+                                      CSP889);
+        final byte text[] = new byte[letters];
+        final long until;
+        long start, total;
+
+        Arrays.fill(text, (byte) 'A');
+        for (int i = 0; i < 200; i++) {         // warm up
+            key.session("AAAAA", "AOOOA").crypt(ENCRYPT, text, 0, letters, new byte[letters], 0);
+            }
+        start = System.nanoTime();
+        until = start + 1000000000L;
+        total = IntStream.range(0, threads).parallel().mapToLong(t -> {
+            Random random = new Random(t);
+            byte out[] = new byte[letters];
+            long count = 0;
+            while (System.nanoTime() < until) {
+                key.session(positions(random, 'A', 26), positions(random, 'A', 26))
+                    .crypt(ENCRYPT, text, 0, letters, out, 0);
+                count += letters;
+                }
+            return(count);
+            }).sum();
+        return(total * 1e9 / (System.nanoTime() - start));
+        }
+
+    // One session of the load test.  The day's key is the same for every session, the
+    // message positions are random.  Each message that comes back has its round trip
+    // put in latency[] and the CRC of its reply, with bit 32 set, in crc[].
+    static void load(ECMClient client, int session, int messages, int letters,
+                     long latency[], AtomicInteger completed, long crc[]) throws IOException {
+        Random random = new Random(session);
+        byte text[] = new byte[letters], reply[];
+        String cipherPos, controlPos;
+        CRC32 sum = new CRC32();
+        long start, time;
+        int m, machine;
+
+        for (m = 0; m < messages; m++) {
+            cipherPos = positions(random, 'A', 26);
+            controlPos = positions(random, 'A', 26);
+            machine = message(random, text);
+            start = System.nanoTime();
+            reply = client.crypt(ENCRYPT, machine, 0, CIPHER_ORDER, CONTROL_ORDER,
+                                 INDEX_ORDER, cipherPos, controlPos, INDEX_POS, text);
+            time = System.nanoTime() - start;
+            latency[completed.getAndIncrement()] = time;
+            sum.reset();
+            sum.update(reply);
+            crc[session * messages + m] = sum.getValue() | (1L << 32);
+            }
+        return;
+        }
+
+    // The letters and machine of a message, after its positions.
+    static int message(Random random, byte text[]) {
+        int i;
+
+        for (i = 0; i < text.length; i++) {
+            text[i] = (byte) ('A' + random.nextInt(26));
+            }
+        return(random.nextInt(2));
+        }
+
+    // The number of wrong replies of a session, from the messages that came back.
+    static long check(int session, int messages, int letters, long crc[]) {
+        Random random = new Random(session);
+        byte text[] = new byte[letters];
+        String cipherPos, controlPos;
+        CRC32 sum = new CRC32();
+        ECMEngine engine;
+        long bad = 0;
+        int m, machine;
+
+        for (m = 0; m < messages; m++) {
+            cipherPos = positions(random, 'A', 26);
+            controlPos = positions(random, 'A', 26);
+            machine = message(random, text);
+            if (crc[session * messages + m] == 0) {
+                continue;               // never came back
+                }
+            engine = new ECMEngine(CIPHER_ORDER, CONTROL_ORDER, INDEX_ORDER, machine);
+            engine.setPositions(cipherPos, controlPos, INDEX_POS);
+            engine.crypt(ENCRYPT, text, 0, letters, text, 0);
+            sum.reset();
+            sum.update(text);
+            if ((sum.getValue() | (1L << 32)) != crc[session * messages + m]) {
+                bad++;
+                }
+            }
+        return(bad);
+        }
+
+    static String positions(Random random, char first, int radix) {
+        char out[] = new char[5];
+        int i;
+
+        for (i = 0; i < 5; i++) {
+            out[i] = (char) (first + random.nextInt(radix));
+            }
+        return(new String(out));
+        }
+
+    }   // end of ECMClient
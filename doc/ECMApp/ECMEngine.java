@@ -0,0 +1,564 @@
+/***********************************************************************
+ * ECMEngine - Headless bulk encipher/decipher engine for the ECM Mark II.
+ *
+ * SUMMARY:
+ * ECMEngine drives a RotorCage without any of the AWT components used by ECMApp.
+ * Each letter goes through exactly the same steps as ECMApp.ECMcycle():
+ *
+ *  1- The letter is passed through the cipher bank with cipherBankWalk()
+ *  2- 1 to 4 cipher rotors are stepped with cipherBankUpdate()
+ *  3- The control rotors are stepped in meter fashion with controlBankUpdate()
+ *
+ * so the output of the engine is identical to typing the same letters on the applet
+ * keyboard.  The keyboard conversions done in ECMApp.action() (Z to X and Space Bar to Z
+ * during encipher, Z to space during decipher) are not done here, the engine only sees
+ * the 26 letters the rotors see.  Lower case letters are accepted and treated as upper
+ * case.  Any other character throws an IllegalArgumentException, the machine state is
+ * left positioned just before the offending character.
+ *
+ * The bulk methods convert characters to the internal 0-25 representation through a
+ * lookup table instead of "ABC...Z".indexOf() and write the result straight into the
+ * caller's array, so nothing is allocated per character.  The input and output arrays
+ * may be the same array.
+ *
+ * The cipherCount lockout of the real machine is not emulated, it is a guard against
+ * operator error, not part of the cipher.
+ *
+ ***********************************************************************/
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ECMEngine implements ECMCipher {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+
+    // Internal representation of each character, -1 if it is not a letter.
+    static final byte LETTER_INDEX[] = new byte[256];
+    // Printed character of each internal representation.
+    static final char LETTERS[] = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    //                             01234567890123456789012345   internal representation
+
+    static {
+        int i;
+
+        for (i = 0; i < 256; i++) {
+            LETTER_INDEX[i] = -1;
+            }
+        for (i = 0; i < 26; i++) {
+            LETTER_INDEX['A' + i] = (byte) i;
+            LETTER_INDEX['a' + i] = (byte) i;
+            }
+        }
+
+    final RotorCage cage;   // the rotors, shared with the caller.
+    final int machine;      // CSP889 or CSP2900, fixed for the life of the engine.
+    final CipherStepper stepper;    // the stepping for the machine, chosen once.
+    boolean compiled;       // step the cipher bank from the cage's step table.
+
+    // seek() works from an origin, the rotor positions at offset zero.
+    long offset;            // letters processed since the origin.
+    int originCipher[] = new int[5];
+    int originControl[] = new int[5];
+    // The control bank runs through all CONTROL_PERIOD states of its three moving rotors
+    // in a fixed cycle.  seekMoves[i][k] is the number of times cipherBank[i] moves in
+    // the first k letters of the cycle, from the state with those rotors at A, and
+    // seekIndex[controlState()] is where a state comes in it.  They depend only on the
+    // step table, not the origin, and are null until seek() needs them.
+    int seekMoves[][];
+    int seekIndex[];
+    int seekKey;            // cage stepKey() the counts were made for.
+
+
+/***********************************************************************
+ * ECMEngine - Constructors
+ *
+ * SUMMARY:
+ * The engine either builds its own RotorCage from the rotor order strings, in the
+ * same format as the ECMApp CipherOrder, ControlOrder and IndexOrder parameters, or
+ * wraps an existing cage.  The cage is not copied, the rotor positions may be set
+ * through cage() between calls to the bulk methods.
+ *
+ ***********************************************************************/
+    public ECMEngine(String cipherOrder, String controlOrder, String indexOrder, int machine) {
+        this(new RotorCage(cipherOrder, controlOrder, indexOrder), machine);
+        }
+
+    public ECMEngine(RotorCage cage, int machine) {
+        if ((machine != CSP889) && (machine != CSP2900)) {
+            throw new IllegalArgumentException("machine must be CSP889 or CSP2900");
+            }
+        this.cage = cage;
+        this.machine = machine;
+        this.stepper = CipherStepper.forMachine(machine);
+        mark();
+        }
+
+/***********************************************************************
+ * cage - Returns the RotorCage driven by this engine.
+ ***********************************************************************/
+    public RotorCage cage() {
+        return(cage);
+        }
+
+/***********************************************************************
+ * machine - Returns the machine type, CSP889 or CSP2900.
+ ***********************************************************************/
+    public int machine() {
+        return(machine);
+        }
+
+/***********************************************************************
+ * ECMEngine - Copy constructor
+ *
+ * SUMMARY:
+ * The copy has its own RotorCage, in the same positions, and the same origin, offset
+ * and mode.  Tables that are never changed once built are shared.
+ *
+ ***********************************************************************/
+    public ECMEngine(ECMEngine other) {
+        this(new RotorCage(other.cage), other.machine);
+        int i;
+
+        for (i = 0; i < 5; i++) {
+            originCipher[i] = other.originCipher[i];
+            originControl[i] = other.originControl[i];
+            }
+        offset = other.offset;
+        compiled = other.compiled;
+        seekMoves = other.seekMoves;
+        seekIndex = other.seekIndex;
+        seekKey = other.seekKey;
+        }
+
+/***********************************************************************
+ * setPositions - Sets the rotor positions and makes them the origin.
+ *
+ * SUMMARY:
+ * The strings are the same as for RotorCage.setCipherBankPos(), setControlBankPos()
+ * and setIndexBankPos().
+ *
+ ***********************************************************************/
+    public void setPositions(String cipherPos, String controlPos, String indexPos) {
+        cage.setCipherBankPos(cipherPos);
+        cage.setControlBankPos(controlPos);
+        cage.setIndexBankPos(indexPos);
+        mark();
+        return;
+        }
+
+/***********************************************************************
+ * mark - Makes the present rotor positions the origin for seek().
+ *
+ * SUMMARY:
+ * The engine marks the origin when it is created and in setPositions().  If the
+ * positions are changed through cage() instead, call mark() afterwards.
+ *
+ ***********************************************************************/
+    public void mark() {
+        int i;
+
+        for (i = 0; i < 5; i++) {
+            originCipher[i] = cage.cipherBank[i].pos;
+            originControl[i] = cage.controlBank[i].pos;
+            }
+        offset = 0;
+        return;
+        }
+
+/***********************************************************************
+ * snapshot - The rotor positions, packed in a long by ECMState.
+ ***********************************************************************/
+    public long snapshot() {
+
+        return(ECMState.of(cage));
+        }
+
+/***********************************************************************
+ * restore - Sets the rotor positions from a snapshot() and makes them the origin.
+ *
+ * SUMMARY:
+ * Like setPositions(), but nothing is parsed or allocated, and the index bank is only
+ * recompiled if its positions change.
+ *
+ ***********************************************************************/
+    public void restore(long state) {
+
+        ECMState.apply(state, cage);
+        mark();
+        return;
+        }
+
+/***********************************************************************
+ * offset - The number of letters processed since the origin.
+ ***********************************************************************/
+    public long offset() {
+        return(offset);
+        }
+
+/***********************************************************************
+ * seek - Positions the machine for the letter at offset n from the origin.
+ *
+ * SUMMARY:
+ * The machine ends up exactly as if n letters had been processed from the origin,
+ * without processing them, so a fragment from the middle of a long message can be
+ * deciphered directly.
+ *
+ * The control bank is an odometer.  The fast rotor moves every letter, the medium
+ * rotor each time the fast rotor leaves O, and the slow rotor each time the medium
+ * rotor leaves O, so each position is a closed form in n.
+ *
+ * Each cipher rotor is at its origin plus the number of times it moved.  The moves
+ * repeat with the control period, so one pass over the period from the origin gives
+ * the running count of moves for each rotor, and the count after n letters is
+ * (n / CONTROL_PERIOD) whole periods plus the count for the remainder.  The pass is
+ * made from a fixed control state, not the origin, so it is only made again when the
+ * step table changes, and the count from the origin is the difference of two counts
+ * along it.
+ *
+ ***********************************************************************/
+    public void seek(long n) {
+        final int period = RotorCage.CONTROL_PERIOD;
+        int i, cw, start, end;
+        long fastMoves, mediumMoves, slowMoves, moves;
+        Rotor fast = cage.controlBank[2];
+        Rotor medium = cage.controlBank[3];
+        Rotor slow = cage.controlBank[1];
+
+        if (n < 0) {
+            throw new IllegalArgumentException("negative offset " + n);
+            }
+        if (!cage.stepTableMatches(machine)) {
+            cage.compileStepTable(machine);
+            }
+        if ((seekMoves == null) || (seekKey != cage.stepTableKey)) {
+            countMoves();
+            }
+
+        // The control bank, rotCW() counts up on a reversed rotor and down on a normal one.
+        fastMoves = n;
+        mediumMoves = passes(originControl[2], fast.reversed ? 1 : -1, fastMoves);
+        slowMoves = passes(originControl[3], medium.reversed ? 1 : -1, mediumMoves);
+        fast.pos = advance(originControl[2], fast.reversed ? 1 : -1, fastMoves);
+        medium.pos = advance(originControl[3], medium.reversed ? 1 : -1, mediumMoves);
+        slow.pos = advance(originControl[1], slow.reversed ? 1 : -1, slowMoves);
+        cage.controlBank[0].pos = originControl[0];
+        cage.controlBank[4].pos = originControl[4];
+
+        // The cipher bank, counted along the cycle from where the origin comes in it.
+        start = seekIndex[originControl[1] * 676 + originControl[3] * 26 + originControl[2]];
+        end = start + (int) (n % period);
+        for (i = 0; i < 5; i++) {
+            moves = (n / period) * seekMoves[i][period] - seekMoves[i][start]
+                + ((end <= period) ? seekMoves[i][end]
+                                   : seekMoves[i][period] + seekMoves[i][end - period]);
+            cw = cage.cipherBank[i].reversed ? 1 : -1;
+            cage.cipherBank[i].pos = advance(originCipher[i],
+                stepper.counterClockwise(i) ? -cw : cw, moves);
+            }
+        offset = n;
+        return;
+        }
+
+    // How many of the first moves of a rotor, starting at start and counting by step,
+    // begin at O?  Those are the moves that carry to the next rotor.
+    static long passes(int start, int step, long moves) {
+        long first = (((int) 'O' - 'A' - start) * step + 26) % 26;
+
+        return((moves > first) ? (moves - 1 - first) / 26 + 1 : 0);
+        }
+
+    static int advance(int start, int step, long moves) {
+
+        return((int) ((start + (moves % 26) * step + 26) % 26));
+        }
+
+    // One pass over the control period from the moving control rotors at A, counting
+    // cipher rotor moves.  seek() sets the control rotors afterwards.
+    void countMoves() {
+        final int period = RotorCage.CONTROL_PERIOD;
+        int i, k, mask;
+        int counts[][] = new int[5][period + 1];
+        int index[] = new int[period];
+        byte table[] = cage.stepTable;
+
+        for (i = 1; i <= 3; i++) {
+            cage.controlBank[i].pos = 0;
+            }
+        for (k = 0; k < period; k++) {
+            index[cage.controlState()] = k;
+            mask = table[cage.controlState()];
+            for (i = 0; i < 5; i++) {
+                counts[i][k + 1] = counts[i][k] + ((mask >> i) & 1);
+                }
+            cage.controlBankUpdate();
+            }
+        seekMoves = counts;
+        seekIndex = index;
+        seekKey = cage.stepTableKey;
+        return;
+        }
+
+/***********************************************************************
+ * setCompiled - Selects the compiled key mode.
+ *
+ * SUMMARY:
+ * In compiled key mode the cipher rotors are stepped from RotorCage.stepTable[]
+ * instead of passing 4 or 6 currents through the control and index banks for every
+ * letter.  The table is built, or rebuilt when the index rotors, control rotors 1 and
+ * 5, or the machine no longer match it, at the start of each bulk call, so the
+ * positions may be changed freely between calls.  The output is the same in either
+ * mode.
+ *
+ ***********************************************************************/
+    public void setCompiled(boolean compiled) {
+        this.compiled = compiled;
+        }
+
+    public boolean isCompiled() {
+        return(compiled);
+        }
+
+    void prepare() {
+        if (compiled && !cage.stepTableMatches(machine)) {
+            cage.compileStepTable(machine);
+            }
+        return;
+        }
+
+/***********************************************************************
+ * cycle - Enciphers or deciphers one letter in internal 0-25 representation.
+ *
+ * SUMMARY:
+ * This is ECMApp.ECMcycle() without the string conversions and display updates.
+ * Each letter is at a new rotor position, so the cipher bank is walked rather than
+ * recomposed, see RotorCage.cipherBankWalk().
+ *
+ ***********************************************************************/
+    public int cycle(int in, boolean direction) {
+        prepare();
+        return(step(in, direction));
+        }
+
+    int step(int in, boolean direction) {
+        int out;
+
+        offset++;
+        out = cage.cipherBankWalk(direction, in);   // encipher or decipher the character
+        if (compiled) {                             // Rotate 1 to 4 cipher rotors.
+            stepper.step(cage, cage.stepTable[cage.controlState()]);
+            }
+        else {
+            stepper.step(cage, stepper.moves(cage));
+            }
+        cage.controlBankUpdate();                   // Rotate the control rotors in meter fashion.
+        return(out);
+        }
+
+/***********************************************************************
+ * encrypt/decrypt - Bulk encipher or decipher of letters.
+ *
+ * SUMMARY:
+ * len letters starting at in[off] are enciphered (or deciphered) and written to out
+ * starting at out[outOff].  The machine is left positioned for the next letter, so a
+ * long message may be processed in any number of pieces.
+ *
+ ***********************************************************************/
+    public void encrypt(char in[], int off, int len, char out[], int outOff) {
+        crypt(ENCRYPT, in, off, len, out, outOff);
+        }
+
+    public void decrypt(char in[], int off, int len, char out[], int outOff) {
+        crypt(DECRYPT, in, off, len, out, outOff);
+        }
+
+    public void encrypt(byte in[], int off, int len, byte out[], int outOff) {
+        crypt(ENCRYPT, in, off, len, out, outOff);
+        }
+
+    public void decrypt(byte in[], int off, int len, byte out[], int outOff) {
+        crypt(DECRYPT, in, off, len, out, outOff);
+        }
+
+/***********************************************************************
+ * encrypt/decrypt - Convenience versions for a String of letters.
+ ***********************************************************************/
+    public String encrypt(String s) {
+        char c[] = s.toCharArray();
+
+        crypt(ENCRYPT, c, 0, c.length, c, 0);
+        return(String.valueOf(c));
+        }
+
+    public String decrypt(String s) {
+        char c[] = s.toCharArray();
+
+        crypt(DECRYPT, c, 0, c.length, c, 0);
+        return(String.valueOf(c));
+        }
+
+/***********************************************************************
+ * parallelEncrypt/parallelDecrypt - Bulk encipher or decipher on a ForkJoinPool.
+ *
+ * SUMMARY:
+ * The same as encrypt() and decrypt(), and with the same output, but the letters are
+ * split into chunks that are processed at the same time.  Each chunk runs on a copy
+ * of the engine that seek() has moved to the chunk's first letter, and writes its own
+ * part of out.  When all the chunks are done this engine is moved past the last
+ * letter.  The input is checked before anything is done, so if it is not all letters
+ * the machine has not moved.
+ *
+ ***********************************************************************/
+    public void parallelEncrypt(byte in[], int off, int len, byte out[], int outOff) {
+        parallelCrypt(ForkJoinPool.commonPool(), ENCRYPT, in, null, off, len, out, null, outOff);
+        }
+
+    public void parallelDecrypt(byte in[], int off, int len, byte out[], int outOff) {
+        parallelCrypt(ForkJoinPool.commonPool(), DECRYPT, in, null, off, len, out, null, outOff);
+        }
+
+    public void parallelEncrypt(char in[], int off, int len, char out[], int outOff) {
+        parallelCrypt(ForkJoinPool.commonPool(), ENCRYPT, null, in, off, len, null, out, outOff);
+        }
+
+    public void parallelDecrypt(char in[], int off, int len, char out[], int outOff) {
+        parallelCrypt(ForkJoinPool.commonPool(), DECRYPT, null, in, off, len, null, out, outOff);
+        }
+
+    void parallelCrypt(ForkJoinPool pool, boolean direction, byte inBytes[], char inChars[],
+                       int off, int len, byte outBytes[], char outChars[], int outOff) {
+        int i, c;
+        long start = offset;
+
+        if (inBytes != null) {
+            checkRange(inBytes.length, off, len);
+            checkRange(outBytes.length, outOff, len);
+            for (i = 0; i < len; i++) {
+                if (LETTER_INDEX[inBytes[off + i] & 0xff] < 0) {
+                    throw new IllegalArgumentException("not a letter at offset " + (off + i));
+                    }
+                }
+            }
+        else {
+            checkRange(inChars.length, off, len);
+            checkRange(outChars.length, outOff, len);
+            for (i = 0; i < len; i++) {
+                c = inChars[off + i];
+                if ((c >= 256) || (LETTER_INDEX[c] < 0)) {
+                    throw new IllegalArgumentException("not a letter at offset " + (off + i));
+                    }
+                }
+            }
+
+        // Build the tables the chunks share before they are copied.
+        seek(start);
+        prepare();
+        pool.invoke(new ECMChunk(this, direction, start, inBytes, inChars, off, len,
+                                 outBytes, outChars, outOff));
+        seek(start + len);
+        return;
+        }
+
+/***********************************************************************
+ * crypt - The bulk loops behind encrypt() and decrypt().
+ ***********************************************************************/
+    void crypt(boolean direction, char in[], int off, int len, char out[], int outOff) {
+        int i, c, letter;
+
+        checkRange(in.length, off, len);
+        checkRange(out.length, outOff, len);
+        prepare();
+        for (i = 0; i < len; i++) {
+            c = in[off + i];
+            letter = (c < 256) ? LETTER_INDEX[c] : -1;
+            if (letter < 0) {
+                throw new IllegalArgumentException("not a letter at offset " + (off + i));
+                }
+            out[outOff + i] = LETTERS[step(letter, direction)];
+            }
+        return;
+        }
+
+    public void crypt(boolean direction, byte in[], int off, int len, byte out[], int outOff) {
+        int i, letter;
+
+        checkRange(in.length, off, len);
+        checkRange(out.length, outOff, len);
+        prepare();
+        for (i = 0; i < len; i++) {
+            letter = LETTER_INDEX[in[off + i] & 0xff];
+            if (letter < 0) {
+                throw new IllegalArgumentException("not a letter at offset " + (off + i));
+                }
+            out[outOff + i] = (byte) ('A' + step(letter, direction));
+            }
+        return;
+        }
+
+    static void checkRange(int length, int off, int len) {
+        if ((off < 0) || (len < 0) || (len > length - off)) {
+            throw new IndexOutOfBoundsException("off " + off + ", len " + len + ", length " + length);
+            }
+        return;
+        }
+
+    }   // end of ECMEngine
+
+
+/***********************************************************************
+ * ECMChunk - One piece of an ECMEngine parallel encipher or decipher.
+ *
+ * SUMMARY:
+ * Splits itself in half until a piece is no longer than CHUNK letters, then runs the
+ * piece on its own copy of the engine, positioned with seek().
+ *
+ ***********************************************************************/
+class ECMChunk extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    static final int CHUNK = 1 << 16;
+
+    final ECMEngine engine;     // the engine being run in parallel, it is only copied.
+    final boolean direction;
+    final long start;           // engine offset of the first letter of the piece
+    final byte inBytes[], outBytes[];
+    final char inChars[], outChars[];
+    final int off, len, outOff;
+
+    ECMChunk(ECMEngine engine, boolean direction, long start, byte inBytes[], char inChars[],
+             int off, int len, byte outBytes[], char outChars[], int outOff) {
+        this.engine = engine;
+        this.direction = direction;
+        this.start = start;
+        this.inBytes = inBytes;
+        this.inChars = inChars;
+        this.off = off;
+        this.len = len;
+        this.outBytes = outBytes;
+        this.outChars = outChars;
+        this.outOff = outOff;
+        }
+
+    protected void compute() {
+        int half;
+        ECMEngine copy;
+
+        if (len > CHUNK) {
+            half = len / 2;
+            invokeAll(new ECMChunk(engine, direction, start, inBytes, inChars,
+                                   off, half, outBytes, outChars, outOff),
+                      new ECMChunk(engine, direction, start + half, inBytes, inChars,
+                                   off + half, len - half, outBytes, outChars, outOff + half));
+            return;
+            }
+        copy = new ECMEngine(engine);
+        copy.seek(start);
+        if (inBytes != null) {
+            copy.crypt(direction, inBytes, off, len, outBytes, outOff);
+            }
+        else {
+            copy.crypt(direction, inChars, off, len, outChars, outOff);
+            }
+        return;
+        }
+
+    }   // end of ECMChunk
@@ -0,0 +1,206 @@
+/***********************************************************************
+ * ECMFile - Enciphers or deciphers whole files through memory mapped windows.
+ *
+ * SUMMARY:
+ * The input and output files are mapped with FileChannel.map() WINDOW bytes at a time
+ * and the engine is run straight over the mapped bytes: each byte is looked up in
+ * ECMEngine.LETTER_INDEX, a letter goes through the rotors and the result is stored
+ * in the output window at the same offset.  Nothing is read into the heap, so a file
+ * of any size is handled in the same small amount of memory, the windows being in
+ * the page cache rather than on the heap.
+ *
+ * Letters of either case are enciphered or deciphered to upper case.  Every other
+ * byte, the line ends and group spaces of an archived message for instance, is copied
+ * unchanged and does not step the rotors, so the output file is the same size as the
+ * input and the letters come out as they would from ECMEngine.crypt().  The output
+ * may be the input file itself, which is then translated in place.
+ *
+ * parallelCrypt() splits each window into PIECE byte pieces, counts the letters in
+ * each, and runs the pieces at the same time on copies of the engine that seek() has
+ * positioned for the first letter of the piece, as ECMEngine.parallelEncrypt() does.
+ * Either way the engine is left positioned after the last letter of the file.
+ *
+ ***********************************************************************/
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public final class ECMFile {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final long WINDOW = 1L << 26;    // bytes mapped at a time
+    static final int PIECE = 1 << 20;       // bytes run on one engine copy in parallel
+
+    private ECMFile() {
+        }
+
+/***********************************************************************
+ * crypt - Enciphers or deciphers file in to file out.
+ *
+ * SUMMARY:
+ * out is created, or cut to the size of in.  Returns the number of letters.
+ *
+ ***********************************************************************/
+    public static long crypt(ECMEngine engine, boolean direction, Path in, Path out)
+            throws IOException {
+        return(crypt(null, engine, direction, in, out));
+        }
+
+/***********************************************************************
+ * parallelCrypt - crypt() with the pieces of each window run on a ForkJoinPool.
+ ***********************************************************************/
+    public static long parallelCrypt(ForkJoinPool pool, ECMEngine engine, boolean direction,
+                                     Path in, Path out) throws IOException {
+        return(crypt(pool, engine, direction, in, out));
+        }
+
+    static long crypt(ForkJoinPool pool, ECMEngine engine, boolean direction, Path in,
+                      Path out) throws IOException {
+        boolean inPlace = Files.exists(out) && Files.isSameFile(in, out);
+        FileChannel source = null, target = null;
+        MappedByteBuffer from, to;
+        long size, position, length, letters = 0;
+
+        try {
+            if (inPlace) {
+                source = FileChannel.open(in, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                target = source;
+                }
+            else {
+                source = FileChannel.open(in, StandardOpenOption.READ);
+                target = FileChannel.open(out, StandardOpenOption.CREATE,
+                                          StandardOpenOption.READ, StandardOpenOption.WRITE);
+                }
+            size = source.size();
+            if (target.size() > size) {
+                target.truncate(size);
+                }
+            for (position = 0; position < size; position += length) {
+                length = Math.min(WINDOW, size - position);
+                to = target.map(FileChannel.MapMode.READ_WRITE, position, length);
+                from = inPlace ? to : source.map(FileChannel.MapMode.READ_ONLY, position, length);
+                if (pool == null) {
+                    letters += run(engine, direction, from, to, 0, (int) length);
+                    }
+                else {
+                    letters += parallelRun(pool, engine, direction, from, to, (int) length);
+                    }
+                }
+            }
+        finally {
+            if (target != null) {
+                target.close();
+                }
+            if ((source != null) && (source != target)) {
+                source.close();
+                }
+            }
+        return(letters);
+        }
+
+/***********************************************************************
+ * run - Runs the engine over from[start..end), writing to[start..end).
+ *
+ * SUMMARY:
+ * Returns the number of letters.  from and to may be the same buffer.
+ *
+ ***********************************************************************/
+    static int run(ECMEngine engine, boolean direction, MappedByteBuffer from,
+                   MappedByteBuffer to, int start, int end) {
+        int i, b, letter, letters = 0;
+
+        engine.prepare();
+        for (i = start; i < end; i++) {
+            b = from.get(i);
+            letter = ECMEngine.LETTER_INDEX[b & 0xff];
+            if (letter >= 0) {
+                to.put(i, (byte) ('A' + engine.step(letter, direction)));
+                letters++;
+                }
+            else if (from != to) {
+                to.put(i, (byte) b);
+                }
+            }
+        return(letters);
+        }
+
+    // Counts the letters in from[start..end).
+    static int count(MappedByteBuffer from, int start, int end) {
+        int i, letters = 0;
+
+        for (i = start; i < end; i++) {
+            if (ECMEngine.LETTER_INDEX[from.get(i) & 0xff] >= 0) {
+                letters++;
+                }
+            }
+        return(letters);
+        }
+
+/***********************************************************************
+ * parallelRun - One window, in PIECE byte pieces on copies of the engine.
+ ***********************************************************************/
+    static long parallelRun(ForkJoinPool pool, final ECMEngine engine, final boolean direction,
+                            final MappedByteBuffer from, final MappedByteBuffer to,
+                            int length) {
+        ArrayList<ForkJoinTask<?>> pieces = new ArrayList<ForkJoinTask<?>>();
+        long base = engine.offset(), letters = 0;
+        int start;
+
+        // Build the tables the copies share before they are made.
+        engine.prepare();
+        for (start = 0; start < length; start += PIECE) {
+            final int first = start, last = Math.min(length, start + PIECE);
+            final long offset = base + letters;
+
+            pieces.add(pool.submit(() -> {
+                ECMEngine copy = new ECMEngine(engine);
+
+                copy.seek(offset);
+                run(copy, direction, from, to, first, last);
+                }));
+            letters += count(from, first, last);
+            }
+        for (ForkJoinTask<?> piece : pieces) {
+            piece.join();
+            }
+        engine.seek(base + letters);
+        return(letters);
+        }
+
+/***********************************************************************
+ * main - Enciphers or deciphers a file.
+ *
+ * SUMMARY:
+ *  java ECMFile e|d in out cipherOrder controlOrder indexOrder cipherPos controlPos
+ *               indexPos [889|2900]
+ *
+ ***********************************************************************/
+    public static void main(String args[]) throws IOException {
+        ECMEngine engine;
+        long start, letters;
+
+        if (args.length < 9) {
+            System.err.println("usage: java ECMFile e|d in out cipherOrder controlOrder"
+                + " indexOrder cipherPos controlPos indexPos [889|2900]");
+            System.exit(1);
+            }
+        engine = new ECMEngine(args[3], args[4], args[5],
+            ((args.length > 9) && args[9].equals("2900")) ? ECMEngine.CSP2900 : ECMEngine.CSP889);
+        engine.setPositions(args[6], args[7], args[8]);
+        engine.setCompiled(true);
+        start = System.nanoTime();
+        letters = parallelCrypt(ForkJoinPool.commonPool(), engine,
+                                args[0].startsWith("d") ? DECRYPT : ENCRYPT,
+                                Path.of(args[1]), Path.of(args[2]));
+        System.err.printf("%d letters, %.1f MB/s%n", letters,
+                          Files.size(Path.of(args[1])) * 1e3 / (System.nanoTime() - start));
+        return;
+        }
+
+    }   // end of ECMFile
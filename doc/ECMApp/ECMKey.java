@@ -0,0 +1,217 @@
+/***********************************************************************
+ * ECMKey - The fixed part of a key, compiled once and shared by any number of threads.
+ *
+ * SUMMARY:
+ * A key list gives, for each day, the rotor orders of the three banks and the index
+ * rotor positions, each message then has its own cipher and control rotor positions.
+ * ECMKey holds the part that does not change from message to message:
+ *
+ *  - the machine, CSP889 or CSP2900
+ *  - the set of rotors, an ECMRotorSet, Rotor.WIRING unless another is given, and for
+ *    each rotor which of the set's shared tables it uses and which way it turns; the
+ *    tables are built once for the set, not once for each Rotor object
+ *  - the step tables of RotorCage.compileStepTable(), which fold in the control bank,
+ *    the index bank and the magnets, one for each position of control rotors 1 and 5,
+ *    which never move during a message, built the first time a session needs them
+ *
+ * A step table is 26^3 bytes, 17 KB, so a key that has seen all 676 settings of
+ * control rotors 1 and 5 holds about 11.9 MB.  bytes() says how much a key holds and
+ * release() drops its tables, to be built again as they are needed; a session keeps
+ * the table it started with, so a key can be released while it is in use.
+ *
+ * Everything is final or only ever set once, from null to a finished table, so an
+ * ECMKey can be shared between threads without locking.  The positions are kept by
+ * an ECMSession, one for each message, which is a few ints.
+ *
+ ***********************************************************************/
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public final class ECMKey {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+    static final int TABLE_BYTES = 26 * 26 * 26;    // a step table
+    static final int KEY_BYTES = 4096;              // about, the rest of a key
+
+    final ECMRotorSet rotors;
+    final int machine;
+    final String cipherOrder, controlOrder, indexOrder, indexPos;
+    final int cipherTab[] = new int[5];     // table offset, as ECMBatch.cipherTab
+    final int cipherTurn[] = new int[5];    // added to the position, mod 26, to turn
+    final int controlTurn[] = new int[5];
+    // The step table for control rotors 1 and 5 at left and right is
+    // stepTables[left * 26 + right], null until needed.
+    final AtomicReferenceArray<byte[]> stepTables = new AtomicReferenceArray<byte[]>(676);
+    final AtomicInteger tables = new AtomicInteger();      // not null in stepTables
+    volatile ECMKeyCache cache;     // the cache holding the key, told as tables are built
+    long counted;                   // bytes() as last counted by cache, under its lock
+
+
+/***********************************************************************
+ * ECMKey - Constructor
+ *
+ * SUMMARY:
+ * The orders are given as for RotorCage and the index positions as for
+ * RotorCage.setIndexBankPos().  The rotor numbers are of rotors, if given.  Anything
+ * else, an order that is not 5 rotor numbers each followed by N or R or positions
+ * that are not 5 digits, throws IllegalArgumentException.
+ *
+ ***********************************************************************/
+    public ECMKey(String cipherOrder, String controlOrder, String indexOrder,
+                  String indexPos, int machine) {
+        this(ECMRotorSet.STANDARD, cipherOrder, controlOrder, indexOrder, indexPos, machine);
+        }
+
+    public ECMKey(ECMRotorSet rotors, String cipherOrder, String controlOrder,
+                  String indexOrder, String indexPos, int machine) {
+        CipherStepper stepper;
+        boolean reversed;
+        int r;
+
+        if ((machine != CSP889) && (machine != CSP2900)) {
+            throw new IllegalArgumentException("machine must be CSP889 or CSP2900");
+            }
+        checkOrder(cipherOrder, Rotor.WIRING.length);
+        checkOrder(controlOrder, Rotor.WIRING.length);
+        checkOrder(indexOrder, Rotor.INDEXWIRING.length);
+        for (r = 0; r < 5; r++) {
+            if ((indexPos.length() != 5) || (indexPos.charAt(r) < '0')
+                    || (indexPos.charAt(r) > '9')) {
+                throw new IllegalArgumentException("bad index positions " + indexPos);
+                }
+            }
+        this.rotors = rotors;
+        this.machine = machine;
+        this.cipherOrder = cipherOrder;
+        this.controlOrder = controlOrder;
+        this.indexOrder = indexOrder;
+        this.indexPos = indexPos;
+        stepper = CipherStepper.forMachine(machine);
+        for (r = 0; r < 5; r++) {
+            reversed = cipherOrder.charAt(r * 2 + 1) == 'R';
+            cipherTab[r] = rotor(cipherOrder, r) * 2 * 676 + (reversed ? 676 : 0);
+            cipherTurn[r] = (reversed != stepper.counterClockwise(r)) ? 1 : 25;
+            controlTurn[r] = (controlOrder.charAt(r * 2 + 1) == 'R') ? 1 : 25;
+            }
+        }
+
+/***********************************************************************
+ * checkOrder - Throws IllegalArgumentException unless order is 5 rotor numbers below
+ * rotors, each followed by N or R.
+ ***********************************************************************/
+    static void checkOrder(String order, int rotors) {
+        int r, w;
+
+        if (order.length() != 10) {
+            throw new IllegalArgumentException("bad rotor order " + order);
+            }
+        for (r = 0; r < 5; r++) {
+            w = order.charAt(r * 2) - '0';
+            if ((w < 0) || (w >= rotors)
+                    || ((order.charAt(r * 2 + 1) != 'N') && (order.charAt(r * 2 + 1) != 'R'))) {
+                throw new IllegalArgumentException("bad rotor order " + order);
+                }
+            }
+        return;
+        }
+
+    static int rotor(String order, int r) {
+        int w = order.charAt(r * 2) - '0';
+
+        if ((w < 0) || (w >= Rotor.WIRING.length)) {
+            throw new IllegalArgumentException("bad rotor order " + order);
+            }
+        return(w);
+        }
+
+    public int machine() {
+        return(machine);
+        }
+
+/***********************************************************************
+ * session - A new message on this key, at the given cipher and control positions.
+ ***********************************************************************/
+    public ECMSession session(String cipherPos, String controlPos) {
+
+        return(new ECMSession(this, cipherPos, controlPos));
+        }
+
+/***********************************************************************
+ * stepTable - The step table for control rotors 1 and 5 at left and right.
+ *
+ * SUMMARY:
+ * Built from a private RotorCage the first time it is asked for.  Two threads may
+ * both build the same table, they get the same contents and the first one stored is
+ * kept, and counted in tables.
+ *
+ ***********************************************************************/
+    byte[] stepTable(int left, int right) {
+        byte table[] = stepTables.get(left * 26 + right);
+        RotorCage cage;
+
+        if (table == null) {
+            cage = new RotorCage(rotors.wiring, cipherOrder, controlOrder, indexOrder);
+            cage.setIndexBankPos(indexPos);
+            cage.controlBank[0].pos = left;
+            cage.controlBank[4].pos = right;
+            cage.compileStepTable(machine);
+            if (stepTables.compareAndSet(left * 26 + right, null, cage.stepTable)) {
+                tables.incrementAndGet();
+                resized();
+                }
+            table = stepTables.get(left * 26 + right);
+            if (table == null) {
+                table = cage.stepTable;         // released meanwhile
+                }
+            }
+        return(table);
+        }
+
+/***********************************************************************
+ * bytes - About how much memory the key holds, most of it step tables.
+ ***********************************************************************/
+    public long bytes() {
+        return(KEY_BYTES + (long) tables.get() * TABLE_BYTES);
+        }
+
+/***********************************************************************
+ * release - Drops the step tables, returning the bytes freed.
+ *
+ * SUMMARY:
+ * Sessions already started keep theirs, and new ones build them again.
+ *
+ ***********************************************************************/
+    public long release() {
+        long freed = 0;
+        int i;
+
+        for (i = 0; i < 676; i++) {
+            if (stepTables.getAndSet(i, null) != null) {
+                tables.decrementAndGet();
+                freed += TABLE_BYTES;
+                }
+            }
+        resized();
+        return(freed);
+        }
+
+    void resized() {
+        ECMKeyCache holder = cache;
+
+        if (holder != null) {
+            holder.resized(this);
+            }
+        return;
+        }
+
+/***********************************************************************
+ * toString - The key as "cipherOrder controlOrder indexOrder indexPos machine".
+ ***********************************************************************/
+    public String toString() {
+
+        return(cipherOrder + " " + controlOrder + " " + indexOrder + " " + indexPos + " "
+            + ((machine == CSP889) ? "CSP889" : "CSP2900"));
+        }
+
+    }   // end of ECMKey
@@ -0,0 +1,186 @@
+/***********************************************************************
+ * ECMKeyCache - Bounded cache of compiled keys, least recently used out first.
+ *
+ * SUMMARY:
+ * A service that enciphers many messages on the same few keys would otherwise parse
+ * the orders and build a key for every message.  ECMKeyCache keeps ECMKeys, keyed by
+ * the cipher, control and index orders, the index positions, which are compiled into
+ * an ECMKey, and the machine type.  get() returns the cached key, or builds and
+ * caches it.
+ *
+ * The cache is bounded both by the number of keys and by their bytes(), which is
+ * mostly the step tables each has built for its messages, 17 KB each and up to
+ * 11.9 MB for a key.  Each key tells the cache as it builds a table, and while either
+ * bound is passed the key used least recently is dropped and its tables released.
+ * The key used last is always kept, whatever its size.  The keys are all on the
+ * rotors of Rotor.WIRING; a service on another rotor set builds its ECMKeys itself.
+ *
+ * The map is a LinkedHashMap in access order behind a lock held only for the lookup,
+ * the insert or the count of a new table.  A key is built outside the lock, so a slow build does not hold up
+ * the hits; if two threads miss on the same key at once both build it and the first
+ * one stored is kept.  The hits, misses and evictions are counted.
+ *
+ ***********************************************************************/
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ECMKeyCache {
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+    static final long DEFAULT_BYTES = 64L << 20;
+
+    final int capacity;
+    final long maxBytes;
+    final LinkedHashMap<String, ECMKey> keys;
+    long bytes;                     // the keys' counted bytes, under the lock
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong evictions = new AtomicLong();
+
+
+/***********************************************************************
+ * ECMKeyCache - Constructor
+ *
+ * SUMMARY:
+ * At most capacity keys holding at most maxBytes, 64 MB if not given.
+ *
+ ***********************************************************************/
+    public ECMKeyCache(int capacity) {
+        this(capacity, DEFAULT_BYTES);
+        }
+
+    public ECMKeyCache(int capacity, long maxBytes) {
+        if ((capacity < 1) || (maxBytes < 1)) {
+            throw new IllegalArgumentException("capacity " + capacity + ", " + maxBytes
+                + " bytes");
+            }
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+        keys = new LinkedHashMap<String, ECMKey>(16, 0.75f, true);
+        }
+
+/***********************************************************************
+ * get - The compiled key, from the cache if it is there.
+ ***********************************************************************/
+    public ECMKey get(String cipherOrder, String controlOrder, String indexOrder,
+                      String indexPos, int machine) {
+        String name = cipherOrder + " " + controlOrder + " " + indexOrder + " " + indexPos
+            + " " + machine;
+        ECMKey key, cached;
+
+        synchronized (keys) {
+            key = keys.get(name);
+            }
+        if (key != null) {
+            hits.incrementAndGet();
+            return(key);
+            }
+        misses.incrementAndGet();
+        key = new ECMKey(cipherOrder, controlOrder, indexOrder, indexPos, machine);
+        synchronized (keys) {
+            cached = keys.putIfAbsent(name, key);
+            if (cached == null) {
+                key.cache = this;
+                key.counted = key.bytes();
+                bytes += key.counted;
+                trim();
+                }
+            }
+        return((cached != null) ? cached : key);
+        }
+
+/***********************************************************************
+ * resized - Called by a key of the cache when it has built or released tables.
+ ***********************************************************************/
+    void resized(ECMKey key) {
+        long now;
+
+        synchronized (keys) {
+            if (key.cache == this) {
+                now = key.bytes();
+                bytes += now - key.counted;
+                key.counted = now;
+                trim();
+                }
+            }
+        return;
+        }
+
+    // Drops keys, least recently used first, until both bounds are met.  Under the lock.
+    void trim() {
+        Iterator<ECMKey> eldest = keys.values().iterator();
+
+        while (((keys.size() > capacity) || (bytes > maxBytes)) && (keys.size() > 1)) {
+            drop(eldest.next());
+            eldest.remove();
+            evictions.incrementAndGet();
+            }
+        return;
+        }
+
+    // Takes a key out of the count and releases its tables.  Under the lock.
+    void drop(ECMKey key) {
+
+        bytes -= key.counted;
+        key.counted = 0;
+        key.cache = null;
+        key.release();
+        return;
+        }
+
+    public int size() {
+        synchronized (keys) {
+            return(keys.size());
+            }
+        }
+
+    public int capacity() {
+        return(capacity);
+        }
+
+    public long bytes() {
+        synchronized (keys) {
+            return(bytes);
+            }
+        }
+
+    public long maxBytes() {
+        return(maxBytes);
+        }
+
+    public long hits() {
+        return(hits.get());
+        }
+
+    public long misses() {
+        return(misses.get());
+        }
+
+    public long evictions() {
+        return(evictions.get());
+        }
+
+/***********************************************************************
+ * clear - Empties the cache, releasing the keys' tables.  The counts are kept.
+ ***********************************************************************/
+    public void clear() {
+        synchronized (keys) {
+            for (ECMKey key : keys.values()) {
+                drop(key);
+                }
+            keys.clear();
+            }
+        return;
+        }
+
+    public String toString() {
+        long h = hits(), m = misses();
+
+        return("ECMKeyCache " + size() + "/" + capacity + " keys, " + (bytes() >> 10) + "/"
+            + (maxBytes >> 10) + " KB, " + h + " hits, " + m
+            + " misses, " + evictions() + " evictions, hit rate "
+            + ((h + m == 0) ? 0 : (100 * h / (h + m))) + "%");
+        }
+
+    }   // end of ECMKeyCache
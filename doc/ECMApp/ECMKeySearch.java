@@ -0,0 +1,409 @@
+/***********************************************************************
+ * ECMKeySearch - Known plaintext search of the cipher bank.
+ *
+ * SUMMARY:
+ * Given a crib, the first letters of a message as the rotors see them, and the cipher
+ * text for it, finds every cipher bank order, orientation and starting position that
+ * enciphers the one to the other.  The control and index banks are a hypothesis given
+ * to the search.  The cipher rotors do not feed back into the stepping, so under the
+ * hypothesis the number of times each cipher rotor has moved before each letter of the
+ * crib is known before the search starts, and the position of each rotor at each
+ * letter is its starting position plus a fixed offset.
+ *
+ * The cipher bank orders are the orders of 5 different rotors from a set of candidate
+ * rotors, by default the rotors of the set that are not in the control bank, each
+ * in all 32 combinations of normal and reversed.  Each order and orientation is a unit
+ * of work, the units are spread over all the cores by a parallel stream, which uses the
+ * work stealing of the common ForkJoinPool.
+ *
+ * The rotors are those of an ECMRotorSet, Rotor.WIRING unless another is given, and
+ * its enc and solve tables are what the search looks them up in.
+ *
+ * Within a unit the first four rotors are run through their 26^4 starting positions,
+ * and for the first letter of the crib the starting positions of the fifth rotor that
+ * give the right cipher letter are looked up, not tried.  Each of those keys is then
+ * checked against the rest of the crib, and dropped at the first letter that does not
+ * match.
+ *
+ * searchOrderBitslice() does the same with the rest of the crib checked 64 keys at a
+ * time by ECMBitslice.  ECMBench times the two: on one core of JDK 17 a unit went at
+ * about 800 keys a microsecond key by key and 200 bitsliced.  Key by key, 25 keys in
+ * 26 are dropped at the second letter after five table lookups, where a bitsliced
+ * lane pays for its share of the five rotor circuits and of loading the lanes, so
+ * search() checks key by key.
+ *
+ ***********************************************************************/
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+public class ECMKeySearch {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+
+    final ECMRotorSet rotors;       // enc and solve are its tables
+    final int machine;
+    final int plain[], cipher[];    // the crib and its cipher text, 0-25
+    final String controlOrder;      // the control bank of the hypothesis
+    // offset[r][d][i] is how far cipher rotor r has turned before letter i, for a rotor
+    // that counts down (d = 0) or up (d = 1) as it moves.
+    final int offset[][][];
+
+
+/***********************************************************************
+ * ECMKeySearch - Constructor
+ *
+ * SUMMARY:
+ * crib and cipherText are letters, of the same length.  The control and index banks
+ * are given as for RotorCage and its set*BankPos methods, the rotor numbers of both
+ * the control and the cipher bank from rotors if it is given.
+ *
+ ***********************************************************************/
+    public ECMKeySearch(String crib, String cipherText, int machine,
+                        String controlOrder, String controlPos,
+                        String indexOrder, String indexPos) {
+        this(ECMRotorSet.STANDARD, crib, cipherText, machine, controlOrder, controlPos,
+             indexOrder, indexPos);
+        }
+
+    public ECMKeySearch(ECMRotorSet rotors, String crib, String cipherText, int machine,
+                        String controlOrder, String controlPos,
+                        String indexOrder, String indexPos) {
+
+        if (crib.length() != cipherText.length() || crib.length() == 0) {
+            throw new IllegalArgumentException("crib and cipher text must be the same length");
+            }
+        this.rotors = rotors;
+        this.machine = machine;
+        this.controlOrder = controlOrder;
+        plain = toLetters(crib);
+        cipher = toLetters(cipherText);
+        offset = stepOffsets(rotors, plain.length, machine, controlOrder, controlPos,
+                             indexOrder, indexPos);
+        }
+
+/***********************************************************************
+ * stepOffsets - How far each cipher rotor has turned before each of length letters.
+ *
+ * SUMMARY:
+ * Returns [rotor][d][letter] as the offset field, for the control and index banks
+ * given as for RotorCage, the control rotors from rotors.  The cipher bank does not
+ * matter.
+ *
+ ***********************************************************************/
+    static int[][][] stepOffsets(ECMRotorSet rotors, int length, int machine,
+                                 String controlOrder, String controlPos,
+                                 String indexOrder, String indexPos) {
+        int offset[][][] = new int[5][2][length];
+        int moves[] = new int[5];
+        int i, r, mask;
+        RotorCage cage;
+
+        cage = new RotorCage(rotors.wiring, "0N1N2N3N4N", controlOrder, indexOrder);
+        cage.setControlBankPos(controlPos);
+        cage.setIndexBankPos(indexPos);
+        for (i = 0; i < length; i++) {
+            for (r = 0; r < 5; r++) {
+                offset[r][0][i] = (26 - moves[r] % 26) % 26;
+                offset[r][1][i] = moves[r] % 26;
+                }
+            mask = cage.cipherBankMoves(machine);
+            for (r = 0; r < 5; r++) {
+                moves[r] += (mask >> r) & 1;
+                }
+            cage.controlBankUpdate();
+            }
+        return(offset);
+        }
+
+    static int[] toLetters(String s) {
+        int out[] = new int[s.length()];
+        int i, c;
+
+        for (i = 0; i < s.length(); i++) {
+            c = s.charAt(i);
+            out[i] = (c < 256) ? ECMEngine.LETTER_INDEX[c] : -1;
+            if (out[i] < 0) {
+                throw new IllegalArgumentException("not a letter at offset " + i);
+                }
+            }
+        return(out);
+        }
+
+/***********************************************************************
+ * search - Searches all cipher bank orders of the candidate rotors.
+ *
+ * SUMMARY:
+ * Returns the matching keys as "order positions", e.g. "3N1R0N2N4R ABCDE".  The
+ * default candidates are the rotors not in the control bank.  rotors is a string of
+ * rotor numbers, e.g. "01234".
+ *
+ ***********************************************************************/
+    public List<String> search() {
+
+        return(search(freeRotors(controlOrder)));
+        }
+
+/***********************************************************************
+ * freeRotors - The numbers of the rotors not in a control bank order, e.g. "01234".
+ ***********************************************************************/
+    static String freeRotors(String controlOrder) {
+        StringBuilder rotors = new StringBuilder();
+        int w;
+
+        for (w = 0; w < Rotor.WIRING.length; w++) {
+            if (controlOrder.indexOf((char) ('0' + w)) < 0) {
+                rotors.append((char) ('0' + w));
+                }
+            }
+        return(rotors.toString());
+        }
+
+    public List<String> search(String rotors) {
+        final ConcurrentLinkedQueue<String> hits = new ConcurrentLinkedQueue<String>();
+        final List<int[]> orders = orders(rotors);
+        List<String> result;
+
+        IntStream.range(0, orders.size() * 32).parallel().forEach(unit ->
+            searchOrder(orders.get(unit / 32), unit % 32, hits::add));
+        result = new ArrayList<String>(hits);
+        Collections.sort(result);
+        return(result);
+        }
+
+/***********************************************************************
+ * orders - All the orders of 5 different rotors from a set of rotor numbers.
+ ***********************************************************************/
+    static List<int[]> orders(String rotors) {
+        List<int[]> out = new ArrayList<int[]>();
+
+        permute(rotors, new int[5], 0, 0, out);
+        return(out);
+        }
+
+    static void permute(String rotors, int order[], int depth, int used, List<int[]> out) {
+        int i, w;
+
+        if (depth == 5) {
+            out.add(order.clone());
+            return;
+            }
+        for (i = 0; i < rotors.length(); i++) {
+            w = rotors.charAt(i) - '0';
+            if ((w < 0) || (w >= Rotor.WIRING.length)) {
+                throw new IllegalArgumentException("no rotor " + rotors.charAt(i));
+                }
+            if ((used & (1 << w)) == 0) {
+                order[depth] = w;
+                permute(rotors, order, depth + 1, used | (1 << w), out);
+                }
+            }
+        return;
+        }
+
+    static String orderString(int order[], int reversed) {
+        StringBuilder s = new StringBuilder();
+        int r;
+
+        for (r = 0; r < 5; r++) {
+            s.append((char) ('0' + order[r]));
+            s.append(((reversed >> r) & 1) != 0 ? 'R' : 'N');
+            }
+        return(s.toString());
+        }
+
+    // Does a rotor count up as it moves?  rotCW() counts up on a reversed rotor, and
+    // CSP 2900 rotors 2 and 4 turn the other way.
+    int countsUp(int r, int reversed) {
+        return(countsUp(machine, r, reversed));
+        }
+
+    static int countsUp(int machine, int r, int reversed) {
+        boolean up = ((reversed >> r) & 1) != 0;
+
+        if (CipherStepper.forMachine(machine).counterClockwise(r)) {
+            up = !up;
+            }
+        return(up ? 1 : 0);
+        }
+
+/***********************************************************************
+ * offsets - How far each cipher rotor has turned before each letter of the crib.
+ *
+ * SUMMARY:
+ * Returns [rotor][letter], for the orientation of the cipher bank given by reversed,
+ * bit r set if rotor r is reversed.
+ *
+ ***********************************************************************/
+    public int[][] offsets(int reversed) {
+        int out[][] = new int[5][];
+        int r;
+
+        for (r = 0; r < 5; r++) {
+            out[r] = offset[r][countsUp(r, reversed)];
+            }
+        return(out);
+        }
+
+/***********************************************************************
+ * searchOrder - Searches the 26^5 starting positions of one cipher bank order.
+ *
+ * SUMMARY:
+ * order holds the rotor numbers, bit r of reversed is set if rotor r is reversed.
+ * Each matching key is passed to hit.
+ *
+ ***********************************************************************/
+    public void searchOrder(int order[], int reversed, Consumer<String> hit) {
+        int e0[] = rotors.enc[order[0]][(reversed >> 0) & 1];
+        int e1[] = rotors.enc[order[1]][(reversed >> 1) & 1];
+        int e2[] = rotors.enc[order[2]][(reversed >> 2) & 1];
+        int e3[] = rotors.enc[order[3]][(reversed >> 3) & 1];
+        int e4[] = rotors.enc[order[4]][(reversed >> 4) & 1];
+        int solve[][] = rotors.solve[order[4]][(reversed >> 4) & 1];
+        int o[][] = offsets(reversed);
+        int o0[] = o[0], o1[] = o[1], o2[] = o[2], o3[] = o[3], o4[] = o[4];
+        int p0 = plain[0], c0 = cipher[0];
+        int s0, s1, s2, s3, s4, x0, x1, x2, x3, k, i, c;
+        int fifth[];
+
+        for (s0 = 0; s0 < 26; s0++) {
+            x0 = e0[s0 * 26 + p0];
+            for (s1 = 0; s1 < 26; s1++) {
+                x1 = e1[s1 * 26 + x0];
+                for (s2 = 0; s2 < 26; s2++) {
+                    x2 = e2[s2 * 26 + x1];
+                    for (s3 = 0; s3 < 26; s3++) {
+                        x3 = e3[s3 * 26 + x2];
+                        fifth = solve[x3 * 26 + c0];
+                        for (k = 0; k < fifth.length; k++) {
+                            s4 = fifth[k];
+                            // Check the rest of the crib, stopping at the first miss.
+                            for (i = 1; i < plain.length; i++) {
+                                c = e0[((s0 + o0[i]) % 26) * 26 + plain[i]];
+                                c = e1[((s1 + o1[i]) % 26) * 26 + c];
+                                c = e2[((s2 + o2[i]) % 26) * 26 + c];
+                                c = e3[((s3 + o3[i]) % 26) * 26 + c];
+                                c = e4[((s4 + o4[i]) % 26) * 26 + c];
+                                if (c != cipher[i]) {
+                                    break;
+                                    }
+                                }
+                            if (i == plain.length) {
+                                hit.accept(orderString(order, reversed) + " "
+                                    + ECMEngine.LETTERS[s0] + ECMEngine.LETTERS[s1]
+                                    + ECMEngine.LETTERS[s2] + ECMEngine.LETTERS[s3]
+                                    + ECMEngine.LETTERS[s4]);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        return;
+        }
+
+/***********************************************************************
+ * searchOrderBitslice - searchOrder() with the rest of the crib checked by ECMBitslice.
+ *
+ * SUMMARY:
+ * The keys left after the fifth rotor is looked up are gathered 64 at a time into the
+ * lanes of an ECMBitslice, which checks the crib from its second letter on all of
+ * them at once.
+ *
+ ***********************************************************************/
+    public void searchOrderBitslice(int order[], int reversed, Consumer<String> hit) {
+        ECMBitslice slice = new ECMBitslice(rotors, orderString(order, reversed));
+        int e0[] = rotors.enc[order[0]][(reversed >> 0) & 1];
+        int e1[] = rotors.enc[order[1]][(reversed >> 1) & 1];
+        int e2[] = rotors.enc[order[2]][(reversed >> 2) & 1];
+        int e3[] = rotors.enc[order[3]][(reversed >> 3) & 1];
+        int solve[][] = rotors.solve[order[4]][(reversed >> 4) & 1];
+        int o[][] = offsets(reversed);
+        int start[][] = new int[5][ECMBitslice.LANES];
+        int p0 = plain[0], c0 = cipher[0];
+        int s0, s1, s2, s3, x0, x1, x2, x3, k, n = 0;
+        int fifth[];
+
+        for (s0 = 0; s0 < 26; s0++) {
+            x0 = e0[s0 * 26 + p0];
+            for (s1 = 0; s1 < 26; s1++) {
+                x1 = e1[s1 * 26 + x0];
+                for (s2 = 0; s2 < 26; s2++) {
+                    x2 = e2[s2 * 26 + x1];
+                    for (s3 = 0; s3 < 26; s3++) {
+                        x3 = e3[s3 * 26 + x2];
+                        fifth = solve[x3 * 26 + c0];
+                        for (k = 0; k < fifth.length; k++) {
+                            start[0][n] = s0;
+                            start[1][n] = s1;
+                            start[2][n] = s2;
+                            start[3][n] = s3;
+                            start[4][n] = fifth[k];
+                            if (++n == ECMBitslice.LANES) {
+                                checkLanes(slice, order, reversed, o, start, n, hit);
+                                n = 0;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        checkLanes(slice, order, reversed, o, start, n, hit);
+        return;
+        }
+
+    // Checks the first n keys of start[r][lane] on slice, passing those that match to hit.
+    void checkLanes(ECMBitslice slice, int order[], int reversed, int o[][], int start[][],
+                    int n, Consumer<String> hit) {
+        long alive;
+        int lane;
+
+        slice.load(start, n);
+        alive = slice.check(plain, cipher, o, 1, (n == 64) ? -1L : (1L << n) - 1);
+        while (alive != 0) {
+            lane = Long.numberOfTrailingZeros(alive);
+            alive &= alive - 1;
+            hit.accept(orderString(order, reversed) + " "
+                + ECMEngine.LETTERS[start[0][lane]] + ECMEngine.LETTERS[start[1][lane]]
+                + ECMEngine.LETTERS[start[2][lane]] + ECMEngine.LETTERS[start[3][lane]]
+                + ECMEngine.LETTERS[start[4][lane]]);
+            }
+        return;
+        }
+
+/***********************************************************************
+ * main - Command line search.
+ *
+ * Usage:
+ *  java ECMKeySearch crib cipherText machine controlOrder controlPos indexOrder indexPos
+ *                    [rotors]
+ *
+ * machine is 889 or 2900.
+ *
+ ***********************************************************************/
+    public static void main(String args[]) {
+        ECMKeySearch search;
+        List<String> hits;
+        long start = System.nanoTime();
+
+        if (args.length < 7) {
+            System.err.println("usage: java ECMKeySearch crib cipherText 889|2900"
+                + " controlOrder controlPos indexOrder indexPos [rotors]");
+            System.exit(1);
+            }
+        search = new ECMKeySearch(args[0], args[1], args[2].equals("2900") ? CSP2900 : CSP889,
+                                  args[3], args[4], args[5], args[6]);
+        hits = (args.length > 7) ? search.search(args[7]) : search.search();
+        for (String hit : hits) {
+            System.out.println(hit);
+            }
+        System.err.println(hits.size() + " keys in "
+            + (System.nanoTime() - start) / 1000000 + " ms");
+        return;
+        }
+
+    }   // end of ECMKeySearch
@@ -0,0 +1,274 @@
+/***********************************************************************
+ * ECMPeriod - The period of the machine's rotor motion for a key.
+ *
+ * SUMMARY:
+ * The state of the machine is the position of all 15 rotors.  The index rotors and
+ * control rotors 1 and 5 never move, and the other three control rotors are an
+ * odometer that comes back to where it started after exactly CONTROL_PERIOD = 26^3
+ * letters, so the state can only repeat after a whole number of control periods.
+ * Over one control period the cipher rotors are moved by the same masks every time,
+ * so each period moves each cipher rotor the same number of steps, and one period is
+ * a fixed map of the 26^5 cipher bank positions, the super-step.  The period of the
+ * machine is CONTROL_PERIOD times the cycle length of the super-step from the key's
+ * cipher bank positions.
+ *
+ * The cycle length is found with Brent's cycle detection, which keeps only two
+ * states.  The key's step table, see RotorCage.compileStepTable(), is run once over
+ * a control period from the key's control positions to count the moves of each
+ * cipher rotor, and the super-step adds those to the cipher positions; the cipher
+ * rotor wiring does not come into it.  With brute the whole 15 rotor state, packed
+ * by ECMState, is stepped a letter at a time through cipherBankUpdate() and
+ * controlBankUpdate() instead, which gives the same period the slow way and checks
+ * the argument above.
+ *
+ * Keys are read one to a line as
+ *
+ *  cipherOrder controlOrder indexOrder cipherPos controlPos indexPos 889|2900
+ *
+ * or made up at random, and are run in parallel.  The results are written in order,
+ * as they are found, as CSV:
+ *
+ *  cipherOrder,controlOrder,indexOrder,cipherPos,controlPos,indexPos,machine,
+ *  superCycle,period
+ *
+ * Usage:
+ *  java ECMPeriod [-brute] [count [seed]] < keys
+ *
+ ***********************************************************************/
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class ECMPeriod {
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+
+    final String cipherOrder, controlOrder, indexOrder;
+    final String cipherPos, controlPos, indexPos;
+    final int machine;
+
+
+    public ECMPeriod(String cipherOrder, String controlOrder, String indexOrder,
+                     String cipherPos, String controlPos, String indexPos, int machine) {
+        if ((machine != CSP889) && (machine != CSP2900)) {
+            throw new IllegalArgumentException("machine must be CSP889 or CSP2900");
+            }
+        this.cipherOrder = cipherOrder;
+        this.controlOrder = controlOrder;
+        this.indexOrder = indexOrder;
+        this.cipherPos = cipherPos;
+        this.controlPos = controlPos;
+        this.indexPos = indexPos;
+        this.machine = machine;
+        }
+
+/***********************************************************************
+ * parse - A key from a line as described above.
+ ***********************************************************************/
+    static ECMPeriod parse(String line) {
+        String field[] = line.trim().split("\\s+");
+
+        if (field.length != 7) {
+            throw new IllegalArgumentException("bad key line: " + line);
+            }
+        return(new ECMPeriod(field[0], field[1], field[2], field[3], field[4], field[5],
+                             field[6].equals("2900") ? CSP2900 : CSP889));
+        }
+
+/***********************************************************************
+ * random - A random key, the 10 rotors of the cipher and control banks all different.
+ ***********************************************************************/
+    static ECMPeriod random(Random random) {
+        StringBuilder big = new StringBuilder(), index = new StringBuilder();
+        int rotors[] = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        int i, k, w;
+
+        for (i = 0; i < 10; i++) {
+            k = i + random.nextInt(10 - i);
+            w = rotors[k];
+            rotors[k] = rotors[i];
+            rotors[i] = w;
+            big.append((char) ('0' + w)).append(random.nextBoolean() ? 'R' : 'N');
+            }
+        for (i = 0; i < 5; i++) {
+            rotors[i] = i;
+            }
+        for (i = 0; i < 5; i++) {
+            k = i + random.nextInt(5 - i);
+            w = rotors[k];
+            rotors[k] = rotors[i];
+            rotors[i] = w;
+            index.append((char) ('0' + w)).append(random.nextBoolean() ? 'R' : 'N');
+            }
+        return(new ECMPeriod(big.substring(0, 10), big.substring(10), index.toString(),
+                             positions(random, 'A', 26), positions(random, 'A', 26),
+                             positions(random, '0', 10), random.nextInt(2)));
+        }
+
+    static String positions(Random random, char first, int radix) {
+        char out[] = new char[5];
+        int i;
+
+        for (i = 0; i < 5; i++) {
+            out[i] = (char) (first + random.nextInt(radix));
+            }
+        return(new String(out));
+        }
+
+    RotorCage cage() {
+        RotorCage cage = new RotorCage(cipherOrder, controlOrder, indexOrder);
+
+        cage.setCipherBankPos(cipherPos);
+        cage.setControlBankPos(controlPos);
+        cage.setIndexBankPos(indexPos);
+        return(cage);
+        }
+
+/***********************************************************************
+ * superCycle - The cycle length of the super-step from the key's cipher positions.
+ ***********************************************************************/
+    public long superCycle() {
+        RotorCage cage = cage();
+        CipherStepper stepper = CipherStepper.forMachine(machine);
+        int moves[] = new int[5];
+        int turn[] = new int[5];
+        int start[] = new int[5];
+        int tortoise[], hare[];
+        long power, length;
+        int i, r, mask;
+
+        // How often each cipher rotor moves in one control period, from the key's
+        // control positions.
+        cage.compileStepTable(machine);
+        for (i = 0; i < RotorCage.CONTROL_PERIOD; i++) {
+            mask = cage.stepTable[cage.controlState()];
+            for (r = 0; r < 5; r++) {
+                moves[r] += (mask >> r) & 1;
+                }
+            cage.controlBankUpdate();
+            }
+        for (r = 0; r < 5; r++) {
+            turn[r] = (cage.cipherBank[r].reversed != stepper.counterClockwise(r)) ? 1 : 25;
+            start[r] = cage.cipherBank[r].pos;
+            }
+
+        // Brent: the hare runs ahead of the tortoise, which jumps to the hare each time
+        // the number of steps since the last jump reaches the next power of two.
+        tortoise = start.clone();
+        hare = superStep(start.clone(), moves, turn);
+        power = 1;
+        length = 1;
+        while (!Arrays.equals(tortoise, hare)) {
+            if (power == length) {
+                tortoise = hare.clone();
+                power *= 2;
+                length = 0;
+                }
+            hare = superStep(hare, moves, turn);
+            length++;
+            }
+        return(length);
+        }
+
+    // Moves the cipher positions pos through one control period, in which rotor r
+    // moves moves[r] times.
+    static int[] superStep(int pos[], int moves[], int turn[]) {
+        int r;
+
+        for (r = 0; r < 5; r++) {
+            pos[r] = (int) ((pos[r] + (long) moves[r] * turn[r]) % 26);
+            }
+        return(pos);
+        }
+
+/***********************************************************************
+ * period - The number of letters before the machine's state repeats.
+ ***********************************************************************/
+    public long period() {
+        return(RotorCage.CONTROL_PERIOD * superCycle());
+        }
+
+/***********************************************************************
+ * brutePeriod - period() the slow way, a letter at a time over the whole state.
+ ***********************************************************************/
+    public long brutePeriod() {
+        RotorCage cage = cage();
+        long tortoise = ECMState.of(cage), power = 1, length = 1;
+
+        step(cage);
+        while (ECMState.of(cage) != tortoise) {
+            if (power == length) {
+                tortoise = ECMState.of(cage);
+                power *= 2;
+                length = 0;
+                }
+            step(cage);
+            length++;
+            }
+        return(length);
+        }
+
+    void step(RotorCage cage) {
+        cage.cipherBankUpdate(machine);
+        cage.controlBankUpdate();
+        return;
+        }
+
+    public String toString() {
+        return(cipherOrder + "," + controlOrder + "," + indexOrder + "," + cipherPos + ","
+            + controlPos + "," + indexPos + "," + ((machine == CSP889) ? "889" : "2900"));
+        }
+
+    String csv(boolean brute) {
+        long cycle = superCycle();
+        long period = brute ? brutePeriod() : cycle * RotorCage.CONTROL_PERIOD;
+
+        return(this + "," + cycle + "," + period);
+        }
+
+/***********************************************************************
+ * main - Runs the keys, see above.
+ ***********************************************************************/
+    public static void main(String args[]) throws IOException {
+        final boolean brute = (args.length > 0) && args[0].equals("-brute");
+        final PrintWriter out = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(System.out)));
+        int a = brute ? 1 : 0;
+        List<ECMPeriod> keys = new ArrayList<ECMPeriod>();
+        Stream<ECMPeriod> source;
+        BufferedReader in;
+        Random random;
+        String line;
+        int count, i;
+
+        if (args.length > a) {
+            count = Integer.parseInt(args[a]);
+            random = new Random((args.length > a + 1) ? Long.parseLong(args[a + 1]) : 1);
+            for (i = 0; i < count; i++) {
+                keys.add(random(random));
+                }
+            source = keys.stream();
+            }
+        else {
+            in = new BufferedReader(new InputStreamReader(System.in));
+            source = in.lines().filter(s -> !s.trim().isEmpty()).map(ECMPeriod::parse);
+            }
+        out.println("cipherOrder,controlOrder,indexOrder,cipherPos,controlPos,indexPos,"
+            + "machine,superCycle,period");
+        source.parallel().map(key -> key.csv(brute)).forEachOrdered(s -> {
+            out.println(s);
+            out.flush();
+            });
+        out.close();
+        return;
+        }
+
+    }   // end of ECMPeriod
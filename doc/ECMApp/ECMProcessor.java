@@ -0,0 +1,251 @@
+/***********************************************************************
+ * ECMProcessor - Enciphers or deciphers a java.util.concurrent.Flow of buffers.
+ *
+ * SUMMARY:
+ * Each item is a CharBuffer or a ByteBuffer holding the next piece of the message, and
+ * is answered by one item of the same kind holding the printed text, with the same
+ * conversions as ECMTape: Z to X and space to Z for encipher, Z to space for decipher,
+ * optional 5 letter groups, and anything the machine has no key for skipped.  A piece
+ * may end anywhere, the rotors and the grouping carry on into the next piece exactly
+ * as if the message had been typed in one go.  A piece with nothing to print gives an
+ * empty buffer, so there is always one item out for each item in.
+ *
+ * Because of that the demand of the subscriber is passed straight on to the
+ * publisher, and each item is translated and delivered in onNext().  Nothing is queued,
+ * however far the publisher is ahead of the subscriber or the other way round.  Each
+ * item in is read up to its limit; each item out is a new heap buffer, flipped ready
+ * to read.
+ *
+ * An ECMProcessor handles one message: it subscribes to one publisher and accepts one
+ * subscriber, in either order.  If an item is not a CharBuffer or ByteBuffer the
+ * publisher is cancelled and the subscriber gets IllegalArgumentException.
+ *
+ ***********************************************************************/
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.concurrent.Flow;
+
+public class ECMProcessor implements Flow.Processor<Buffer, Buffer> {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+
+    final ECMTape tape;
+    final char charIn[] = new char[ECMTape.BUFFER];
+    final byte byteIn[] = new byte[ECMTape.BUFFER];
+
+    // Guarded by this.  The subscriber's demand is held in pending only until the
+    // publisher's subscription arrives.
+    Flow.Subscription upstream;
+    Flow.Subscriber<? super Buffer> downstream;
+    long pending = 0;
+    boolean cancelled = false;
+    boolean done = false;                   // upstream has completed or failed
+    Throwable failure;                      // why, if it failed
+
+
+/***********************************************************************
+ * ECMProcessor - Constructor
+ *
+ * SUMMARY:
+ * engine is an ECMEngine or ECMSession already set to the message key, grouped prints
+ * the cipher text in 5 letter groups when enciphering.
+ *
+ ***********************************************************************/
+    public ECMProcessor(ECMCipher engine, boolean direction, boolean grouped) {
+        tape = new ECMTape(engine, direction, grouped);
+        }
+
+/***********************************************************************
+ * subscribe - Accepts the one subscriber.
+ ***********************************************************************/
+    public void subscribe(Flow.Subscriber<? super Buffer> subscriber) {
+        boolean taken, finished;
+        Throwable why;
+
+        synchronized (this) {
+            taken = (downstream != null);
+            if (!taken) {
+                downstream = subscriber;
+                }
+            finished = done;
+            why = failure;
+            }
+
+        if (taken) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                public void request(long n) { }
+                public void cancel() { }
+                });
+            subscriber.onError(new IllegalStateException("already subscribed"));
+            return;
+            }
+
+        subscriber.onSubscribe(new Flow.Subscription() {
+            public void request(long n) {
+                demand(n);
+                }
+
+            public void cancel() {
+                ECMProcessor.this.cancel();
+                }
+            });
+        if (finished) {
+            finish(why);
+            }
+        return;
+        }
+
+    // The subscriber asks for n more items.
+    void demand(long n) {
+        Flow.Subscription from;
+
+        if (n <= 0) {
+            cancel();
+            downstream.onError(new IllegalArgumentException("request of " + n));
+            return;
+            }
+        synchronized (this) {
+            if (cancelled) {
+                return;
+                }
+            from = upstream;
+            if (from == null) {
+                pending = (pending + n < 0) ? Long.MAX_VALUE : pending + n;
+                return;
+                }
+            }
+        from.request(n);
+        return;
+        }
+
+    void cancel() {
+        Flow.Subscription from;
+
+        synchronized (this) {
+            cancelled = true;
+            from = upstream;
+            }
+        if (from != null) {
+            from.cancel();
+            }
+        return;
+        }
+
+/***********************************************************************
+ * onSubscribe - Takes the publisher's subscription, passing on any demand so far.
+ ***********************************************************************/
+    public void onSubscribe(Flow.Subscription subscription) {
+        boolean stop;
+        long n;
+
+        synchronized (this) {
+            if (upstream != null) {
+                stop = true;
+                n = 0;
+                }
+            else {
+                upstream = subscription;
+                stop = cancelled;
+                n = pending;
+                pending = 0;
+                }
+            }
+        if (stop) {
+            subscription.cancel();
+            }
+        else if (n > 0) {
+            subscription.request(n);
+            }
+        return;
+        }
+
+/***********************************************************************
+ * onNext - Translates one piece of the message and passes it on.
+ ***********************************************************************/
+    public void onNext(Buffer item) {
+        Flow.Subscriber<? super Buffer> to;
+        Buffer out;
+
+        synchronized (this) {
+            if (cancelled) {
+                return;
+                }
+            to = downstream;
+            }
+        if (item instanceof CharBuffer) {
+            out = translate((CharBuffer) item);
+            }
+        else if (item instanceof ByteBuffer) {
+            out = translate((ByteBuffer) item);
+            }
+        else {
+            cancel();
+            to.onError(new IllegalArgumentException("not a CharBuffer or ByteBuffer: "
+                + item));
+            return;
+            }
+        to.onNext(out);
+        return;
+        }
+
+    CharBuffer translate(CharBuffer in) {
+        char out[] = new char[ECMTape.maxOutput(in.remaining())];
+        int n, length = 0;
+
+        while (in.hasRemaining()) {
+            n = Math.min(in.remaining(), ECMTape.BUFFER);
+            in.get(charIn, 0, n);
+            length += tape.translate(charIn, 0, n, out, length);
+            }
+        return(CharBuffer.wrap(out, 0, length).slice());
+        }
+
+    ByteBuffer translate(ByteBuffer in) {
+        byte out[] = new byte[ECMTape.maxOutput(in.remaining())];
+        int n, length = 0;
+
+        while (in.hasRemaining()) {
+            n = Math.min(in.remaining(), ECMTape.BUFFER);
+            in.get(byteIn, 0, n);
+            length += tape.translate(byteIn, 0, n, out, length);
+            }
+        return(ByteBuffer.wrap(out, 0, length).slice());
+        }
+
+    public void onError(Throwable throwable) {
+        finishing(throwable);
+        return;
+        }
+
+    public void onComplete() {
+        finishing(null);
+        return;
+        }
+
+    // Upstream is done.  Passed on now if there is a subscriber, by subscribe() if not.
+    void finishing(Throwable why) {
+        boolean now;
+
+        synchronized (this) {
+            done = true;
+            failure = why;
+            now = (downstream != null) && !cancelled;
+            }
+        if (now) {
+            finish(why);
+            }
+        return;
+        }
+
+    void finish(Throwable why) {
+        if (why == null) {
+            downstream.onComplete();
+            }
+        else {
+            downstream.onError(why);
+            }
+        return;
+        }
+
+    }   // end of ECMProcessor
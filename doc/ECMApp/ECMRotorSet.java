@@ -0,0 +1,135 @@
+/***********************************************************************
+ * ECMRotorSet - The path tables of a set of cipher and control rotors.
+ *
+ * SUMMARY:
+ * The batch, key and search classes do not build Rotor objects as they go, they look
+ * every rotor up in flat tables of its path at each position, built once for the set
+ * of rotors and shared by every thread.  STANDARD is the set of Rotor.WIRING, which is
+ * what every class uses unless it is given another, such as one made by
+ * InternalMethod.rotorSet(), so a search or a benchmark can be run against any number
+ * of realistic rotor sets.
+ *
+ * The tables, for rotor w of the set, normal (o = 0) or reversed (o = 1):
+ *
+ *  cipherEnc, cipherDec, control   CipherRotor.encPath, decPath and ControlRotor.path,
+ *                                  at (w * 2 + o) * 676 + pos * 26 + in
+ *  enc[w][o]                       CipherRotor.encPath on its own
+ *  solve[w][o][in * 26 + out]      the positions of the cipher rotor that encipher in
+ *                                  to out, for ECMKeySearch
+ *
+ * The index rotors are always those of Rotor.INDEXWIRING, so their table, INDEX, at
+ * (w * 2 + o) * 100 + pos * 10 + in, is the same for every set.
+ *
+ ***********************************************************************/
+
+public final class ECMRotorSet {
+    static final int INDEX[] = new int[Rotor.INDEXWIRING.length * 2 * 100];
+    static final ECMRotorSet STANDARD;
+
+    static {
+        IndexRotor index;
+        int w, o;
+
+        for (w = 0; w < Rotor.INDEXWIRING.length; w++) {
+            for (o = 0; o < 2; o++) {
+                index = new IndexRotor(w);
+                if (o == 1) {
+                    index.reverse();
+                    }
+                System.arraycopy(index.path, 0, INDEX, (w * 2 + o) * 100, 100);
+                }
+            }
+        STANDARD = new ECMRotorSet(Rotor.WIRING);
+        }
+
+    final int wiring[][];
+    final int cipherEnc[], cipherDec[], control[];
+    final int enc[][][];
+    final int solve[][][][];
+
+
+/***********************************************************************
+ * ECMRotorSet - Constructor
+ *
+ * SUMMARY:
+ * wiring is laid out as Rotor.WIRING, a row of the letters 'A' to 'Z' for each rotor,
+ * and has as many rotors, so that the rotor numbers 0 to 9 of an order all exist.
+ * Anything else throws IllegalArgumentException.
+ *
+ ***********************************************************************/
+    public ECMRotorSet(int wiring[][]) {
+        int w, o, p, in, out, n, seen;
+        int count[] = new int[26 * 26];
+        CipherRotor cipher;
+        ControlRotor control;
+
+        if (wiring.length != Rotor.WIRING.length) {
+            throw new IllegalArgumentException("a rotor set has " + Rotor.WIRING.length
+                + " rotors, not " + wiring.length);
+            }
+        for (w = 0; w < wiring.length; w++) {
+            seen = 0;
+            for (in = 0; (in < 26) && (wiring[w].length == 26); in++) {
+                if ((wiring[w][in] >= 'A') && (wiring[w][in] <= 'Z')) {
+                    seen |= 1 << (wiring[w][in] - 'A');
+                    }
+                }
+            if (seen != (1 << 26) - 1) {
+                throw new IllegalArgumentException("rotor " + w + " is not wired A to Z");
+                }
+            }
+        this.wiring = wiring;
+        cipherEnc = new int[wiring.length * 2 * 676];
+        cipherDec = new int[wiring.length * 2 * 676];
+        this.control = new int[wiring.length * 2 * 676];
+        enc = new int[wiring.length][2][];
+        solve = new int[wiring.length][2][26 * 26][];
+
+        for (w = 0; w < wiring.length; w++) {
+            for (o = 0; o < 2; o++) {
+                cipher = new CipherRotor(wiring[w]);
+                control = new ControlRotor(wiring[w]);
+                if (o == 1) {
+                    cipher.reverse();
+                    control.reverse();
+                    }
+                System.arraycopy(cipher.encPath, 0, cipherEnc, (w * 2 + o) * 676, 676);
+                System.arraycopy(cipher.decPath, 0, cipherDec, (w * 2 + o) * 676, 676);
+                System.arraycopy(control.path, 0, this.control, (w * 2 + o) * 676, 676);
+
+                enc[w][o] = cipher.encPath;
+                for (in = 0; in < 26 * 26; in++) {
+                    count[in] = 0;
+                    }
+                for (p = 0; p < 26; p++) {
+                    for (in = 0; in < 26; in++) {
+                        count[in * 26 + cipher.encPath[p * 26 + in]]++;
+                        }
+                    }
+                for (in = 0; in < 26 * 26; in++) {
+                    solve[w][o][in] = new int[count[in]];
+                    }
+                for (p = 0; p < 26; p++) {
+                    for (in = 0; in < 26; in++) {
+                        out = cipher.encPath[p * 26 + in];
+                        n = --count[in * 26 + out];
+                        solve[w][o][in * 26 + out][n] = p;
+                        }
+                    }
+                }
+            }
+        }
+
+/***********************************************************************
+ * generate - A set made by the internal method, see InternalMethod.rotorSet().
+ ***********************************************************************/
+    public static ECMRotorSet generate(long seed) {
+
+        return(new ECMRotorSet(InternalMethod.rotorSet(Rotor.WIRING.length, seed)));
+        }
+
+    public int[][] wiring() {
+        return(wiring);
+        }
+
+    }   // end of ECMRotorSet
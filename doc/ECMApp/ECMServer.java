@@ -0,0 +1,394 @@
+/***********************************************************************
+ * ECMServer - Encipher and decipher service on a local socket.
+ *
+ * SUMMARY:
+ * Serves any number of operators at once, each on their own connection, over TCP on
+ * the loopback address or over a Unix domain socket.  Each connection is handled by
+ * its own thread, a virtual thread when the JDK has them (21 and later) and a pooled
+ * platform thread when it does not.  Keys come from an ECMKeyCache, so operators on
+ * the same day's key share one compiled ECMKey and each message is an ECMSession.
+ * The protocol has no way to send a rotor set, so every key is on the rotors of
+ * Rotor.WIRING, ECMRotorSet.STANDARD.
+ *
+ * A connection carries any number of requests, one after another.  All numbers are
+ * big endian, strings are in DataOutput.writeUTF() form:
+ *
+ *  request:    byte    'E' to encipher or 'D' to decipher
+ *              byte    machine, 0 CSP889 or 1 CSP2900
+ *              byte    flags, TAPE for the ECMTape conversions (Z and space, anything
+ *                      else skipped), GROUPS as well for 5 letter cipher groups
+ *              UTF     cipher order, control order, index order, as for RotorCage
+ *              UTF     cipher, control and index positions, as for set*BankPos()
+ *              chunks  int n, 1 to MAX_CHUNK, then n bytes of text, as many as needed
+ *              int     0, the end of the text
+ *
+ *  reply:      for each chunk of text, int n and the n bytes it translates to, which
+ *              may be 0 bytes with TAPE; after the end, int 0
+ *
+ * Each chunk is answered before the next one is read, so a message of any length is
+ * streamed through the session in constant memory and the client always knows how
+ * much to read.  If anything in a request is wrong, or the server fails on it, the
+ * reply is int -1 and a UTF message in place of the next reply, and the connection is
+ * closed.  A failure that is not the request's fault is also logged on System.err.
+ *
+ * Targets, for 10,000 sessions connected at once on one machine, each sending 1,000
+ * letter messages back to back (java ECMClient address 10000 ...):
+ *
+ *  - every session connected and served to the end, and every reply right
+ *  - total letters per second at least half of ECMSession on the same cores, the rest
+ *    is the socket and thread switching overhead
+ *  - 99th percentile round trip at most 100 ms plus three times the fair share, the
+ *    time to do one message of every session at the letters per second achieved
+ *
+ * ECMClient checks each of these and reports PASS or FAIL.
+ *
+ * Usage:
+ *  java ECMServer tcp:port|unix:path [cache size [cache MB]]
+ *
+ * The key cache holds at most 1024 keys and 64 MB of their step tables unless told
+ * otherwise, see ECMKeyCache.
+ *
+ ***********************************************************************/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ECMServer implements Closeable {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+    static final int TAPE = 1, GROUPS = 2;  // request flags
+    static final int MAX_CHUNK = 65536;     // longest chunk of text in a request
+    static final int BACKLOG = 16384;       // connections waiting to be accepted
+
+    final SocketAddress address;
+    final ServerSocketChannel server;
+    final ExecutorService connections;
+    final ECMKeyCache keys;
+    final AtomicLong requests = new AtomicLong();
+    final AtomicLong letters = new AtomicLong();
+    final AtomicLong open = new AtomicLong();
+
+
+/***********************************************************************
+ * ECMServer - Constructor
+ *
+ * SUMMARY:
+ * Binds the socket, see address().  run() then accepts the connections.  A Unix domain
+ * socket file left over from an earlier server is removed first, but anything else at
+ * that path is left alone and throws an IOException.  The key cache holds
+ * at most cacheSize keys of at most cacheBytes, ECMKeyCache.DEFAULT_BYTES if not given.
+ *
+ ***********************************************************************/
+    public ECMServer(SocketAddress address, int cacheSize) throws IOException {
+        this(address, cacheSize, ECMKeyCache.DEFAULT_BYTES);
+        }
+
+    public ECMServer(SocketAddress address, int cacheSize, long cacheBytes)
+            throws IOException {
+        if (address instanceof UnixDomainSocketAddress) {
+            deleteSocket(((UnixDomainSocketAddress) address).getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            }
+        else {
+            server = ServerSocketChannel.open();
+            }
+        server.bind(address, BACKLOG);
+        this.address = server.getLocalAddress();
+        keys = new ECMKeyCache(cacheSize, cacheBytes);
+        connections = threadPerTask();
+        }
+
+/***********************************************************************
+ * address - Parses "tcp:port" (on the loopback address) or "unix:path".
+ ***********************************************************************/
+    public static SocketAddress address(String name) {
+
+        if (name.startsWith("tcp:")) {
+            return(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                         Integer.parseInt(name.substring(4))));
+            }
+        if (name.startsWith("unix:")) {
+            return(UnixDomainSocketAddress.of(name.substring(5)));
+            }
+        throw new IllegalArgumentException("address must be tcp:port or unix:path");
+        }
+
+/***********************************************************************
+ * threadPerTask - An executor that starts a thread for each task.
+ *
+ * SUMMARY:
+ * Executors.newVirtualThreadPerTaskExecutor() if the JDK has it, looked up by name so
+ * this compiles and runs on JDK 17, otherwise a cached pool of platform threads.
+ *
+ ***********************************************************************/
+    static ExecutorService threadPerTask() {
+
+        try {
+            return((ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+            }
+        catch (ReflectiveOperationException e) {
+            return(Executors.newCachedThreadPool());
+            }
+        }
+
+    public SocketAddress address() {
+        return(address);
+        }
+
+    public ECMKeyCache keys() {
+        return(keys);
+        }
+
+/***********************************************************************
+ * run - Accepts connections until close().
+ ***********************************************************************/
+    public void run() throws IOException {
+        SocketChannel channel;
+
+        try {
+            for (;;) {
+                channel = server.accept();
+                final SocketChannel connection = channel;
+                connections.execute(() -> serve(connection));
+                }
+            }
+        catch (ClosedChannelException e) {
+            // close() was called.
+            }
+        return;
+        }
+
+/***********************************************************************
+ * start - Runs run() on a thread of its own, for a server in the same process.
+ ***********************************************************************/
+    public Thread start() {
+        Thread thread = new Thread(() -> {
+            try {
+                run();
+                }
+            catch (IOException e) {
+                System.err.println("ECMServer: " + e);
+                }
+            }, "ECMServer " + address);
+
+        thread.setDaemon(true);
+        thread.start();
+        return(thread);
+        }
+
+    public void close() throws IOException {
+        server.close();
+        connections.shutdown();
+        if (address instanceof UnixDomainSocketAddress) {
+            deleteSocket(((UnixDomainSocketAddress) address).getPath());
+            }
+        return;
+        }
+
+/***********************************************************************
+ * deleteSocket - Deletes a Unix domain socket file, if there is one at path.
+ *
+ * SUMMARY:
+ * A socket is neither a regular file, a directory nor a link, so "other" to
+ * BasicFileAttributes.  Anything else at path throws an IOException rather than be
+ * deleted, so a mistyped address cannot remove a file.
+ *
+ ***********************************************************************/
+    static void deleteSocket(Path path) throws IOException {
+        BasicFileAttributes attributes;
+
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class,
+                                              LinkOption.NOFOLLOW_LINKS);
+            }
+        catch (NoSuchFileException e) {
+            return;
+            }
+        if (!attributes.isOther()) {
+            throw new IOException(path + " is not a socket");
+            }
+        Files.deleteIfExists(path);
+        return;
+        }
+
+/***********************************************************************
+ * serve - Answers the requests on one connection until the client closes it.
+ ***********************************************************************/
+    void serve(SocketChannel channel) {
+        Buffers buffers = new Buffers();
+        DataInputStream in;
+        DataOutputStream out = null;
+        int op;
+
+        open.incrementAndGet();
+        try {
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            out = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(channel)));
+            while ((op = in.read()) >= 0) {
+                request(op, in, out, buffers);
+                requests.incrementAndGet();
+                }
+            }
+        catch (RuntimeException e) {
+            if (!(e instanceof IllegalArgumentException)) {
+                System.err.println("ECMServer: " + e);      // not the request's fault
+                }
+            try {
+                out.writeInt(-1);
+                out.writeUTF(String.valueOf(e.getMessage()));
+                out.flush();
+                }
+            catch (IOException | RuntimeException ignored) {
+                // The client is gone, nothing to tell it.
+                }
+            }
+        catch (IOException e) {
+            // The client went away in the middle of a request.
+            }
+        finally {
+            open.decrementAndGet();
+            try {
+                channel.close();
+                }
+            catch (IOException ignored) {
+                }
+            }
+        return;
+        }
+
+    // The text buffers of one connection, grown to the longest chunk it has sent, so a
+    // request allocates nothing for its text.
+    static class Buffers {
+        byte text[] = new byte[0];
+        byte printed[] = new byte[0];
+        }
+
+/***********************************************************************
+ * request - Reads one request and streams back its reply.
+ *
+ * SUMMARY:
+ * Throws IllegalArgumentException for a bad request, IOException if the connection
+ * fails.  The op and machine are checked before anything else is read, so a client
+ * out of step with the protocol gets its -1 at once.
+ *
+ ***********************************************************************/
+    void request(int op, DataInputStream in, DataOutputStream out, Buffers buffers)
+            throws IOException {
+        String cipherOrder, controlOrder, indexOrder, cipherPos, controlPos, indexPos;
+        boolean direction = (op == 'D') ? DECRYPT : ENCRYPT;
+        byte text[] = buffers.text, printed[] = buffers.printed;
+        ECMSession session;
+        ECMTape tape = null;
+        int machine, flags, n, i, piece, length;
+
+        if ((op != 'E') && (op != 'D')) {
+            throw new IllegalArgumentException("unknown request " + op);
+            }
+        machine = in.read();
+        if (machine < 0) {
+            throw new EOFException();
+            }
+        if ((machine != CSP889) && (machine != CSP2900)) {
+            throw new IllegalArgumentException("unknown machine " + machine);
+            }
+        flags = in.read();
+        cipherOrder = in.readUTF();
+        controlOrder = in.readUTF();
+        indexOrder = in.readUTF();
+        cipherPos = in.readUTF();
+        controlPos = in.readUTF();
+        indexPos = in.readUTF();
+        // ECMKey and ECMSession check the orders and positions.
+        session = keys.get(cipherOrder, controlOrder, indexOrder, indexPos, machine)
+            .session(cipherPos, controlPos);
+        if ((flags & TAPE) != 0) {
+            tape = new ECMTape(session, direction, (flags & GROUPS) != 0);
+            }
+
+        while ((n = in.readInt()) != 0) {
+            if ((n < 0) || (n > MAX_CHUNK)) {
+                throw new IllegalArgumentException("chunk of " + n + " bytes");
+                }
+            if (text.length < n) {
+                text = buffers.text = new byte[n];
+                }
+            in.readFully(text, 0, n);
+            if (tape == null) {
+                session.crypt(direction, text, 0, n, text, 0);
+                length = n;
+                out.writeInt(length);
+                out.write(text, 0, length);
+                }
+            else {
+                if (printed.length < ECMTape.maxOutput(n)) {
+                    printed = buffers.printed = new byte[ECMTape.maxOutput(n)];
+                    }
+                for (i = 0, length = 0; i < n; i += piece) {
+                    piece = Math.min(n - i, ECMTape.BUFFER);
+                    length += tape.translate(text, i, piece, printed, length);
+                    }
+                out.writeInt(length);
+                out.write(printed, 0, length);
+                }
+            letters.addAndGet(n);
+            out.flush();
+            }
+        out.writeInt(0);
+        out.flush();
+        return;
+        }
+
+    public String toString() {
+
+        return("ECMServer " + address + ", " + open.get() + " connections, "
+            + requests.get() + " requests, " + letters.get() + " letters, " + keys);
+        }
+
+/***********************************************************************
+ * main - Runs a server until it is killed, printing its counts every 10 seconds.
+ ***********************************************************************/
+    public static void main(String args[]) throws Exception {
+        final ECMServer server;
+
+        if (args.length < 1) {
+            System.err.println("usage: java ECMServer tcp:port|unix:path"
+                + " [cache size [cache MB]]");
+            System.exit(1);
+            }
+        server = new ECMServer(address(args[0]),
+                               (args.length > 1) ? Integer.parseInt(args[1]) : 1024,
+                               (args.length > 2) ? Long.parseLong(args[2]) << 20
+                                                 : ECMKeyCache.DEFAULT_BYTES);
+        System.err.println("listening on " + server.address());
+        server.start();
+        for (;;) {
+            Thread.sleep(10000);
+            System.err.println(server);
+            }
+        }
+
+    }   // end of ECMServer
@@ -0,0 +1,181 @@
+/***********************************************************************
+ * ECMSession - One message on a shared ECMKey.
+ *
+ * SUMMARY:
+ * The session holds only what changes as the message is enciphered: the cipher and
+ * control rotor positions, as ints, and the step table of its key for the position of
+ * control rotors 1 and 5.  Each letter goes through the same steps as ECMEngine.step()
+ * on a compiled key, but the rotor tables are the key's shared ones.
+ *
+ * A session is not thread safe, it is meant to be used by one thread at a time, but any
+ * number of sessions on the same key may run at once.  The letters are handled as by
+ * ECMEngine: A-Z or a-z in, A-Z out, anything else throws IllegalArgumentException with
+ * the session left just before it.
+ *
+ ***********************************************************************/
+
+public class ECMSession implements ECMCipher {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+
+    final ECMKey key;
+    final byte stepTable[];
+    final int cipherPos[] = new int[5];
+    final int controlPos[] = new int[5];
+
+
+    ECMSession(ECMKey key, String cipherSet, String controlSet) {
+        int r;
+
+        this.key = key;
+        if ((cipherSet.length() != 5) || (controlSet.length() != 5)) {
+            throw new IllegalArgumentException("positions must be 5 letters");
+            }
+        for (r = 0; r < 5; r++) {
+            cipherPos[r] = position(cipherSet.charAt(r));
+            controlPos[r] = position(controlSet.charAt(r));
+            }
+        stepTable = key.stepTable(controlPos[0], controlPos[4]);
+        }
+
+    static int position(char c) {
+        int p = (c < 256) ? ECMEngine.LETTER_INDEX[c] : -1;
+
+        if (p < 0) {
+            throw new IllegalArgumentException("bad rotor position " + c);
+            }
+        return(p);
+        }
+
+    public ECMKey key() {
+        return(key);
+        }
+
+/***********************************************************************
+ * snapshot - The rotor positions, including the key's index positions, as ECMState.
+ ***********************************************************************/
+    public long snapshot() {
+        int index[] = new int[5];
+        int r;
+
+        for (r = 0; r < 5; r++) {
+            index[r] = key.indexPos.charAt(r) - '0';
+            }
+        return(ECMState.pack(cipherPos, controlPos, index));
+        }
+
+/***********************************************************************
+ * restore - Goes back to a snapshot() of this session.
+ *
+ * SUMMARY:
+ * Control rotors 1 and 5 do not move during a message and the index positions are
+ * part of the key, so a snapshot of the same message always has them as they are now.
+ * A state that differs in any of them throws IllegalArgumentException.  The rotor
+ * orders are not in a state at all, so a state packed for another key with the same
+ * index positions cannot be told apart; it must come from a session of this key.
+ *
+ ***********************************************************************/
+    public void restore(long state) {
+        int r;
+
+        if ((ECMState.controlPos(state, 0) != controlPos[0])
+                || (ECMState.controlPos(state, 4) != controlPos[4])) {
+            throw new IllegalArgumentException("not a state of this session");
+            }
+        for (r = 0; r < 5; r++) {
+            if (ECMState.indexPos(state, r) != key.indexPos.charAt(r) - '0') {
+                throw new IllegalArgumentException("not a state of this key");
+                }
+            }
+        for (r = 0; r < 5; r++) {
+            cipherPos[r] = ECMState.cipherPos(state, r);
+            controlPos[r] = ECMState.controlPos(state, r);
+            }
+        return;
+        }
+
+/***********************************************************************
+ * step - Enciphers or deciphers one letter, 0-25, and steps the rotors.
+ ***********************************************************************/
+    int step(boolean direction, int c) {
+        int tab[] = (direction == ENCRYPT) ? key.rotors.cipherEnc : key.rotors.cipherDec;
+        int cipherTab[] = key.cipherTab, cipherTurn[] = key.cipherTurn;
+        int r, mask;
+
+        if (direction == ENCRYPT) {
+            for (r = 0; r <= 4; r++) {
+                c = tab[cipherTab[r] + cipherPos[r] * 26 + c];
+                }
+            }
+        else {
+            for (r = 4; r >= 0; r--) {
+                c = tab[cipherTab[r] + cipherPos[r] * 26 + c];
+                }
+            }
+
+        mask = stepTable[controlPos[1] * 676 + controlPos[3] * 26 + controlPos[2]];
+        for (r = 0; r < 5; r++) {
+            if ((mask & (1 << r)) != 0) {
+                cipherPos[r] = (cipherPos[r] + cipherTurn[r]) % 26;
+                }
+            }
+
+        // The control rotors, as RotorCage.controlBankUpdate().
+        if (controlPos[2] == (int) 'O' - 'A') {
+            if (controlPos[3] == (int) 'O' - 'A') {
+                controlPos[1] = (controlPos[1] + key.controlTurn[1]) % 26;
+                }
+            controlPos[3] = (controlPos[3] + key.controlTurn[3]) % 26;
+            }
+        controlPos[2] = (controlPos[2] + key.controlTurn[2]) % 26;
+        return(c);
+        }
+
+/***********************************************************************
+ * crypt - Enciphers or deciphers len letters from in[off] to out[outOff].
+ ***********************************************************************/
+    public void crypt(boolean direction, byte in[], int off, int len, byte out[], int outOff) {
+        int i, c;
+
+        ECMEngine.checkRange(in.length, off, len);
+        ECMEngine.checkRange(out.length, outOff, len);
+        for (i = 0; i < len; i++) {
+            c = ECMEngine.LETTER_INDEX[in[off + i] & 0xff];
+            if (c < 0) {
+                throw new IllegalArgumentException("not a letter at offset " + (off + i));
+                }
+            out[outOff + i] = (byte) ECMEngine.LETTERS[step(direction, c)];
+            }
+        return;
+        }
+
+    public void crypt(boolean direction, char in[], int off, int len, char out[], int outOff) {
+        int i, c;
+
+        ECMEngine.checkRange(in.length, off, len);
+        ECMEngine.checkRange(out.length, outOff, len);
+        for (i = 0; i < len; i++) {
+            c = in[off + i];
+            c = (c < 256) ? ECMEngine.LETTER_INDEX[c] : -1;
+            if (c < 0) {
+                throw new IllegalArgumentException("not a letter at offset " + (off + i));
+                }
+            out[outOff + i] = ECMEngine.LETTERS[step(direction, c)];
+            }
+        return;
+        }
+
+    public String encrypt(String text) {
+        char buf[] = text.toCharArray();
+
+        crypt(ENCRYPT, buf, 0, buf.length, buf, 0);
+        return(new String(buf));
+        }
+
+    public String decrypt(String text) {
+        char buf[] = text.toCharArray();
+
+        crypt(DECRYPT, buf, 0, buf.length, buf, 0);
+        return(new String(buf));
+        }
+
+    }   // end of ECMSession
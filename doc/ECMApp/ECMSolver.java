@@ -0,0 +1,722 @@
+/***********************************************************************
+ * ECMSolver - Cipher text only hill climbing search of the cipher bank.
+ *
+ * SUMMARY:
+ * With no crib, the cipher bank is found by hill climbing on how much the deciphered
+ * text looks like the plaintext the machine is fed.  As in ECMKeySearch the control
+ * and index banks are a hypothesis, so how far each cipher rotor has turned before
+ * each letter is known, and a key of the cipher bank is the order of 5 rotors from
+ * the candidates, their orientations and their 5 starting positions.
+ *
+ * A deciphering is scored by the log probability of its letter pairs under English as
+ * the tape sees it, Z for the space, which is the most common character, and X for Z.
+ * The pair probabilities are counted from a sample of English and smoothed towards
+ * the letter frequencies, which setScoring() can choose instead.  Pairs tell English
+ * from text with the right letter frequencies in the wrong order, which letters alone
+ * cannot, so a climb is less often stuck on a key that only half deciphers.  The climb starts from a random key and keeps making the
+ * best change it can find to one rotor, a new starting position, turning it over or
+ * putting another candidate rotor in its place, or to two rotors, swapping them, until
+ * no change scores better.  Then it starts again from another random key.  The search
+ * ends at the first key that scores at least the threshold, by default most of the
+ * way from the score of random letters to that of English, or after the given number
+ * of climbs.
+ *
+ * Deciphering runs the cipher text back through rotor 4 to rotor 0, so the text after
+ * each rotor is cached, and a change to rotor r only deciphers again through rotors r
+ * down to 0.  Rotor 0 deciphers and scores each letter pair as it goes, so trying a
+ * position of it makes no pass over the text but the one.  The climbs are independent and are run on all the cores, each thread
+ * with its own random number generator split from the one seed, so a search may be
+ * repeated.
+ *
+ * A cipher bank only deciphers to text that looks like English once the rotors the
+ * cipher text goes through first are right, so the climb is mostly a search of the
+ * first rotors with the last ones solved for at the end.  It works best when the
+ * order, or a short list of candidate rotors, is known, and on messages of a few
+ * hundred letters.
+ *
+ ***********************************************************************/
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+public class ECMSolver {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+
+    // Letter frequencies of English in percent, A to Z.  On the tape Z is sent as X
+    // and the space, about 1 character in 5.5, as Z.
+    static final double ENGLISH[] = {
+        8.17, 1.49, 2.78, 4.25, 12.70, 2.23, 2.02, 6.09, 6.97, 0.15, 0.77, 4.03, 2.41,
+        6.75, 7.51, 1.93, 0.10, 5.99, 6.33, 9.06, 2.76, 0.98, 2.36, 0.15, 1.97, 0.07
+        };
+    static final double SPACE = 0.18;
+    // SCORE[c] is 1000 times the natural log of the probability of tape letter c.
+    static final int SCORE[] = new int[26];
+    // Average score of a letter of English, and of a random letter.
+    static final double ENGLISH_SCORE, RANDOM_SCORE;
+
+    // Scoring by single letters, or by letter pairs.
+    static final int MONOGRAMS = 1, BIGRAMS = 2;
+    // A sample of English the pair frequencies are counted from.
+    static final String SAMPLE =
+        "Four score and seven years ago our fathers brought forth on this continent, a new "
+        + "nation, conceived in Liberty, and dedicated to the proposition that all men are "
+        + "created equal. Now we are engaged in a great civil war, testing whether that "
+        + "nation, or any nation so conceived and so dedicated, can long endure. We are met "
+        + "on a great battle-field of that war. We have come to dedicate a portion of that "
+        + "field, as a final resting place for those who here gave their lives that that "
+        + "nation might live. It is altogether fitting and proper that we should do this. "
+        + "But, in a larger sense, we can not dedicate, we can not consecrate, we can not "
+        + "hallow this ground. The brave men, living and dead, who struggled here, have "
+        + "consecrated it, far above our poor power to add or detract. The world will little "
+        + "note, nor long remember what we say here, but it can never forget what they did "
+        + "here. It is for us the living, rather, to be dedicated here to the unfinished "
+        + "work which they who fought here have thus far so nobly advanced. It is rather for "
+        + "us to be here dedicated to the great task remaining before us, that from these "
+        + "honored dead we take increased devotion to that cause for which they gave the "
+        + "last full measure of devotion, that we here highly resolve that these dead shall "
+        + "not have died in vain, that this nation, under God, shall have a new birth of "
+        + "freedom, and that government of the people, by the people, for the people, shall "
+        + "not perish from the earth. When in the Course of human events, it becomes "
+        + "necessary for one people to dissolve the political bands which have connected "
+        + "them with another, and to assume among the powers of the earth, the separate and "
+        + "equal station to which the Laws of Nature and of Nature's God entitle them, a "
+        + "decent respect to the opinions of mankind requires that they should declare the "
+        + "causes which impel them to the separation. We hold these truths to be "
+        + "self-evident, that all men are created equal, that they are endowed by their "
+        + "Creator with certain unalienable Rights, that among these are Life, Liberty and "
+        + "the pursuit of Happiness. That to secure these rights, Governments are "
+        + "instituted among Men, deriving their just powers from the consent of the "
+        + "governed, That whenever any Form of Government becomes destructive of these "
+        + "ends, it is the Right of the People to alter or to abolish it, and to institute "
+        + "new Government, laying its foundation on such principles and organizing its "
+        + "powers in such form, as to them shall seem most likely to effect their Safety "
+        + "and Happiness. Prudence, indeed, will dictate that Governments long established "
+        + "should not be changed for light and transient causes; and accordingly all "
+        + "experience hath shewn, that mankind are more disposed to suffer, while evils "
+        + "are sufferable, than to right themselves by abolishing the forms to which they "
+        + "are accustomed. But when a long train of abuses and usurpations, pursuing "
+        + "invariably the same Object evinces a design to reduce them under absolute "
+        + "Despotism, it is their right, it is their duty, to throw off such Government, "
+        + "and to provide new Guards for their future security. Such has been the patient "
+        + "sufferance of these Colonies; and such is now the necessity which constrains "
+        + "them to alter their former Systems of Government.";
+    // How many pairs' worth of the letter frequencies the pair counts are smoothed with.
+    static final int SMOOTHING = 26;
+    // MONOGRAM[a * 26 + b] is SCORE[b], BIGRAM[a * 26 + b] is 1000 times the natural log
+    // of the probability of tape letter b after a.  A text scores SCORE[] of its first
+    // letter and the pair table of each letter after it.
+    static final int MONOGRAM[] = new int[26 * 26], BIGRAM[] = new int[26 * 26];
+    // Average pair score of a letter of English, and of a random letter.
+    static final double BIGRAM_ENGLISH, BIGRAM_RANDOM;
+
+    static {
+        double p[] = new double[26];
+        double total = 0, english = 0, random = 0;
+        int c;
+
+        for (c = 0; c < 26; c++) {
+            total += ENGLISH[c];
+            }
+        for (c = 0; c < 26; c++) {
+            p[c] = (1 - SPACE) * ENGLISH[c] / total;
+            }
+        p['X' - 'A'] += p['Z' - 'A'];
+        p['Z' - 'A'] = SPACE;
+        for (c = 0; c < 26; c++) {
+            SCORE[c] = (int) Math.round(1000 * Math.log(p[c]));
+            english += p[c] * SCORE[c];
+            random += SCORE[c] / 26.0;
+            }
+        ENGLISH_SCORE = english;
+        RANDOM_SCORE = random;
+
+        int tape[] = tape(SAMPLE), count[] = new int[26 * 26], first[] = new int[26];
+        int a, b, i;
+
+        for (i = 1; i < tape.length; i++) {
+            count[tape[i - 1] * 26 + tape[i]]++;
+            first[tape[i - 1]]++;
+            }
+        english = 0;
+        random = 0;
+        for (a = 0; a < 26; a++) {
+            for (b = 0; b < 26; b++) {
+                MONOGRAM[a * 26 + b] = SCORE[b];
+                BIGRAM[a * 26 + b] = (int) Math.round(1000 * Math.log(
+                    (count[a * 26 + b] + SMOOTHING * p[b]) / (first[a] + SMOOTHING)));
+                english += p[a] * (count[a * 26 + b] + SMOOTHING * p[b])
+                    / (first[a] + SMOOTHING) * BIGRAM[a * 26 + b];
+                random += BIGRAM[a * 26 + b] / 676.0;
+                }
+            }
+        BIGRAM_ENGLISH = english;
+        BIGRAM_RANDOM = random;
+        }
+
+    // Text as the tape sends it, 0-25: Z as X, each run of other characters as Z.
+    static int[] tape(String text) {
+        int out[] = new int[text.length()];
+        int i, n = 0;
+        char c;
+
+        for (i = 0; i < text.length(); i++) {
+            c = Character.toUpperCase(text.charAt(i));
+            if ((c >= 'A') && (c <= 'Z')) {
+                out[n++] = (c == 'Z') ? 'X' - 'A' : c - 'A';
+                }
+            else if ((n > 0) && (out[n - 1] != 'Z' - 'A')) {
+                out[n++] = 'Z' - 'A';
+                }
+            }
+        return(Arrays.copyOf(out, n));
+        }
+
+    final ECMRotorSet rotors;
+    final int machine;
+    final int cipher[];             // the cipher text, 0-25
+    final String controlOrder;      // the control bank of the hypothesis
+    final int offset[][][];         // as ECMKeySearch.offset
+    int pairs[] = BIGRAM;           // the pair table scored by
+    double english = BIGRAM_ENGLISH, random = BIGRAM_RANDOM;
+    double threshold;               // average score a letter that ends the search
+    long seed = 1;
+
+    // The best key so far, guarded by this.
+    String best;
+    int bestScore = Integer.MIN_VALUE;
+    final AtomicLong climbs = new AtomicLong();
+
+
+/***********************************************************************
+ * ECMSolver - Constructor
+ *
+ * SUMMARY:
+ * The cipher text is letters.  The control and index banks are given as for
+ * RotorCage and its set*BankPos methods, the rotor numbers from rotors if given.
+ *
+ ***********************************************************************/
+    public ECMSolver(String cipherText, int machine, String controlOrder, String controlPos,
+                     String indexOrder, String indexPos) {
+        this(ECMRotorSet.STANDARD, cipherText, machine, controlOrder, controlPos, indexOrder,
+             indexPos);
+        }
+
+    public ECMSolver(ECMRotorSet rotors, String cipherText, int machine,
+                     String controlOrder, String controlPos, String indexOrder,
+                     String indexPos) {
+        if (cipherText.length() == 0) {
+            throw new IllegalArgumentException("no cipher text");
+            }
+        this.rotors = rotors;
+        this.machine = machine;
+        this.controlOrder = controlOrder;
+        cipher = ECMKeySearch.toLetters(cipherText);
+        offset = ECMKeySearch.stepOffsets(rotors, cipher.length, machine, controlOrder,
+                                          controlPos, indexOrder, indexPos);
+        threshold = random + 0.75 * (english - random);
+        }
+
+/***********************************************************************
+ * setScoring - Scores by MONOGRAMS or BIGRAMS, the default.
+ *
+ * SUMMARY:
+ * Sets the threshold back to its default for that scoring, so call it before
+ * setThreshold().
+ *
+ ***********************************************************************/
+    public void setScoring(int scoring) {
+        if (scoring == MONOGRAMS) {
+            pairs = MONOGRAM;
+            english = ENGLISH_SCORE;
+            random = RANDOM_SCORE;
+            }
+        else if (scoring == BIGRAMS) {
+            pairs = BIGRAM;
+            english = BIGRAM_ENGLISH;
+            random = BIGRAM_RANDOM;
+            }
+        else {
+            throw new IllegalArgumentException("unknown scoring " + scoring);
+            }
+        threshold = random + 0.75 * (english - random);
+        return;
+        }
+
+/***********************************************************************
+ * setThreshold - The average score a letter at which the search stops.
+ ***********************************************************************/
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+        return;
+        }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+        return;
+        }
+
+/***********************************************************************
+ * solve - Climbs until a key reaches the threshold or after climbs climbs.
+ *
+ * SUMMARY:
+ * rotors is a string of candidate rotor numbers, as for ECMKeySearch.search(), by
+ * default the rotors not in the control bank.  Returns the best key found as
+ * "order positions", e.g. "3N1R0N2N4R ABCDE"; score() tells whether it reached the
+ * threshold.  climbs must be at least 1.
+ *
+ ***********************************************************************/
+    public String solve(long climbs) {
+
+        return(solve(ECMKeySearch.freeRotors(controlOrder), climbs));
+        }
+
+    public String solve(String rotors, long climbs) {
+        return(search(rotors, null, climbs));
+        }
+
+/***********************************************************************
+ * solveOrder - Climbs over the starting positions only, of a known order.
+ *
+ * SUMMARY:
+ * order is a cipher bank order as for RotorCage, e.g. "3N1R0N2N4R".
+ *
+ ***********************************************************************/
+    public String solveOrder(String order, long climbs) {
+        int r;
+
+        for (r = 0; r < 5; r++) {
+            ECMKey.rotor(order, r);
+            }
+        return(search(order.replaceAll("[NR]", ""), order, climbs));
+        }
+
+    String search(final String rotors, final String order, final long limit) {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final SplittableRandom random[] = new SplittableRandom[threads];
+        final AtomicLong left = new AtomicLong(limit);
+        final AtomicBoolean found = new AtomicBoolean();
+        int t;
+
+        if (rotors.length() < 5) {
+            throw new IllegalArgumentException("need 5 candidate rotors, not " + rotors);
+            }
+        if (limit < 1) {
+            throw new IllegalArgumentException("need at least 1 climb, not " + limit);
+            }
+        ECMKeySearch.orders(rotors.substring(0, 5));            // checks the rotor numbers
+        random[0] = new SplittableRandom(seed);
+        for (t = 1; t < threads; t++) {
+            random[t] = random[0].split();
+            }
+        IntStream.range(0, threads).parallel().forEach(thread -> {
+            Climb climb = new Climb(rotors, order, random[thread]);
+
+            while (!found.get() && (left.getAndDecrement() > 0)) {
+                climb.start();
+                climb.climb();
+                climbs.incrementAndGet();
+                if (offer(climb)) {
+                    found.set(true);
+                    }
+                }
+            });
+        return(best);
+        }
+
+    // Records the key of a finished climb if it is the best so far.  Returns true if it
+    // reaches the threshold.
+    synchronized boolean offer(Climb climb) {
+        if (climb.score > bestScore) {
+            bestScore = climb.score;
+            best = climb.toString();
+            }
+        return(climb.score >= threshold * cipher.length);
+        }
+
+/***********************************************************************
+ * score - The average score a letter of the best key, see english().
+ ***********************************************************************/
+    public synchronized double score() {
+        return((double) bestScore / cipher.length);
+        }
+
+/***********************************************************************
+ * english - The average score a letter of English, and random() of random letters.
+ ***********************************************************************/
+    public double english() {
+        return(english);
+        }
+
+    public double random() {
+        return(random);
+        }
+
+    public long climbs() {
+        return(climbs.get());
+        }
+
+/***********************************************************************
+ * decipher - The cipher text deciphered with a key in the form solve() returns.
+ ***********************************************************************/
+    public String decipher(String key) {
+        Climb climb = keyed(key);
+        char out[] = new char[cipher.length];
+        int i;
+
+        for (i = 0; i < cipher.length; i++) {
+            out[i] = ECMEngine.LETTERS[climb.text[0][i]];
+            }
+        return(new String(out));
+        }
+
+    // A Climb set to a key in the form solve() returns, with the text deciphered.
+    Climb keyed(String key) {
+        Climb climb = new Climb(key.substring(0, 10).replaceAll("[NR]", ""),
+                                key.substring(0, 10), new SplittableRandom(0));
+        int r;
+
+        for (r = 0; r < 5; r++) {
+            climb.pos[r] = key.charAt(11 + r) - 'A';
+            }
+        climb.decipher(4);
+        return(climb);
+        }
+
+/***********************************************************************
+ * Climb - The state of one thread's climbs.
+ *
+ * SUMMARY:
+ * text[r] is the cipher text deciphered through rotors 4 down to r, text[5] is the
+ * cipher text itself.  trial and spare are scratch for trying a change.
+ *
+ ***********************************************************************/
+    class Climb {
+        final int rotors[];                 // the candidate rotors
+        final boolean fixed;                // is the order and orientation given?
+        final SplittableRandom random;
+        final int order[] = new int[5];
+        int reversed;
+        final int pos[] = new int[5];
+        final int tab[] = new int[5];       // table offset, as ECMBatch.cipherTab
+        final int off[][] = new int[5][];   // offset[r][countsUp] for each rotor
+        final int text[][] = new int[6][];
+        int trial[], spare[];
+        int score;
+
+        Climb(String candidates, String given, SplittableRandom random) {
+            int r;
+
+            rotors = new int[candidates.length()];
+            for (r = 0; r < rotors.length; r++) {
+                rotors[r] = candidates.charAt(r) - '0';
+                }
+            this.random = random;
+            fixed = (given != null);
+            if (fixed) {
+                for (r = 0; r < 5; r++) {
+                    order[r] = given.charAt(r * 2) - '0';
+                    if (given.charAt(r * 2 + 1) == 'R') {
+                        reversed |= 1 << r;
+                        }
+                    }
+                for (r = 0; r < 5; r++) {
+                    setRotor(r);
+                    }
+                }
+            for (r = 0; r < 5; r++) {
+                text[r] = new int[cipher.length];
+                }
+            text[5] = cipher;
+            trial = new int[cipher.length];
+            spare = new int[cipher.length];
+            }
+
+        // Sets the tables of rotor r from order[r] and reversed.
+        void setRotor(int r) {
+            int o = (reversed >> r) & 1;
+
+            tab[r] = order[r] * 2 * 676 + o * 676;
+            off[r] = offset[r][ECMKeySearch.countsUp(machine, r, reversed)];
+            return;
+            }
+
+        // A random key to climb from.
+        void start() {
+            int r, k, w;
+
+            if (!fixed) {
+                for (r = 0; r < 5; r++) {
+                    k = r + random.nextInt(rotors.length - r);
+                    w = rotors[k];
+                    rotors[k] = rotors[r];
+                    rotors[r] = w;
+                    order[r] = w;
+                    }
+                reversed = random.nextInt(32);
+                for (r = 0; r < 5; r++) {
+                    setRotor(r);
+                    }
+                }
+            for (r = 0; r < 5; r++) {
+                pos[r] = random.nextInt(26);
+                }
+            decipher(4);
+            return;
+            }
+
+        // Deciphers from[] through rotor r at starting position p into to[].
+        void rotor(int r, int p, int from[], int to[]) {
+            int t[] = ECMSolver.this.rotors.cipherDec;
+            int o[] = off[r];
+            int base = tab[r], i, q;
+
+            for (i = 0; i < from.length; i++) {
+                q = p + o[i];
+                if (q >= 26) {
+                    q -= 26;
+                    }
+                to[i] = t[base + q * 26 + from[i]];
+                }
+            return;
+            }
+
+        // Deciphers the cached text again through rotors top down to 0, and scores it.
+        void decipher(int top) {
+            int r;
+
+            for (r = top; r >= 0; r--) {
+                rotor(r, pos[r], text[r + 1], text[r]);
+                }
+            score = score(text[0]);
+            return;
+            }
+
+        int score(int plain[]) {
+            int t[] = pairs;
+            int i, s = SCORE[plain[0]];
+
+            for (i = 1; i < plain.length; i++) {
+                s += t[plain[i - 1] * 26 + plain[i]];
+                }
+            return(s);
+            }
+
+        // The score of from[] deciphered through rotor 0 at p, each pair scored as it is
+        // deciphered rather than the text stored and scored after.
+        int scoreRotor(int p, int from[]) {
+            int t[] = ECMSolver.this.rotors.cipherDec, pair[] = pairs;
+            int o[] = off[0];
+            int base = tab[0], i, q, c, last, s;
+
+            q = p + o[0];
+            if (q >= 26) {
+                q -= 26;
+                }
+            last = t[base + q * 26 + from[0]];
+            s = SCORE[last];
+            for (i = 1; i < from.length; i++) {
+                q = p + o[i];
+                if (q >= 26) {
+                    q -= 26;
+                    }
+                c = t[base + q * 26 + from[i]];
+                s += pair[last * 26 + c];
+                last = c;
+                }
+            return(s);
+            }
+
+        // The score with rotor r at p and the rotors below it as they are.
+        int tryRotor(int r, int p) {
+            int from[];
+
+            if (r == 0) {
+                return(scoreRotor(p, text[1]));
+                }
+            rotor(r, p, text[r + 1], trial);
+            for (r = r - 1; r >= 1; r--) {
+                rotor(r, pos[r], trial, spare);
+                from = trial;
+                trial = spare;
+                spare = from;
+                }
+            return(scoreRotor(pos[0], trial));
+            }
+
+        // The best starting position for rotor r as it now is.  Returns its score.
+        int bestPosition(int r) {
+            int p, s, bestPos = pos[r], most = Integer.MIN_VALUE;
+
+            for (p = 0; p < 26; p++) {
+                s = tryRotor(r, p);
+                if (s > most) {
+                    most = s;
+                    bestPos = p;
+                    }
+                }
+            pos[r] = bestPos;
+            return(most);
+            }
+
+/***********************************************************************
+ * climb - Makes the best change to one or two rotors until none is better.
+ ***********************************************************************/
+        void climb() {
+            boolean better = true;
+            int r, q, k, s, oldPos, oldOrder;
+
+            while (better) {
+                better = false;
+                for (r = 0; r < 5; r++) {
+                    // A new starting position.
+                    oldPos = pos[r];
+                    if (bestPosition(r) > score) {
+                        decipher(r);
+                        better = true;
+                        }
+                    else {
+                        pos[r] = oldPos;
+                        }
+                    if (fixed) {
+                        continue;
+                        }
+
+                    // Turned over, at its best position.
+                    oldPos = pos[r];
+                    reversed ^= 1 << r;
+                    setRotor(r);
+                    if (bestPosition(r) > score) {
+                        decipher(r);
+                        better = true;
+                        }
+                    else {
+                        reversed ^= 1 << r;
+                        setRotor(r);
+                        pos[r] = oldPos;
+                        }
+
+                    // Another candidate rotor in its place.
+                    for (k = 5; k < rotors.length; k++) {
+                        oldPos = pos[r];
+                        oldOrder = order[r];
+                        order[r] = rotors[k];
+                        setRotor(r);
+                        if (bestPosition(r) > score) {
+                            rotors[k] = oldOrder;
+                            for (q = 0; q < 5; q++) {
+                                if (rotors[q] == oldOrder) {
+                                    rotors[q] = order[r];
+                                    }
+                                }
+                            decipher(r);
+                            better = true;
+                            }
+                        else {
+                            order[r] = oldOrder;
+                            setRotor(r);
+                            pos[r] = oldPos;
+                            }
+                        }
+
+                    // Swapped with a rotor below it, with their positions.
+                    for (q = 0; q < r; q++) {
+                        s = score;
+                        swap(r, q);
+                        decipher(r);
+                        if (score > s) {
+                            better = true;
+                            }
+                        else {
+                            swap(r, q);
+                            decipher(r);
+                            }
+                        }
+                    }
+                }
+            return;
+            }
+
+        void swap(int r, int q) {
+            int w;
+
+            w = order[r];
+            order[r] = order[q];
+            order[q] = w;
+            w = pos[r];
+            pos[r] = pos[q];
+            pos[q] = w;
+            w = ((reversed >> r) & 1) ^ ((reversed >> q) & 1);
+            reversed ^= (w << r) | (w << q);
+            setRotor(r);
+            setRotor(q);
+            return;
+            }
+
+        public String toString() {
+            StringBuilder s = new StringBuilder(ECMKeySearch.orderString(order, reversed));
+            int r;
+
+            s.append(' ');
+            for (r = 0; r < 5; r++) {
+                s.append(ECMEngine.LETTERS[pos[r]]);
+                }
+            return(s.toString());
+            }
+
+        }   // end of Climb
+
+/***********************************************************************
+ * main - Command line search.
+ *
+ * Usage:
+ *  java ECMSolver cipherText machine controlOrder controlPos indexOrder indexPos
+ *                 [climbs] [rotors|order]
+ *
+ * machine is 889 or 2900.  A cipher bank order, e.g. 3N1R0N2N4R, in place of the
+ * candidate rotors climbs over the starting positions only.
+ *
+ ***********************************************************************/
+    public static void main(String args[]) {
+        ECMSolver solver;
+        long start = System.nanoTime(), climbs;
+        String key;
+
+        if (args.length < 6) {
+            System.err.println("usage: java ECMSolver cipherText 889|2900 controlOrder"
+                + " controlPos indexOrder indexPos [climbs] [rotors|order]");
+            System.exit(1);
+            }
+        solver = new ECMSolver(args[0], args[1].equals("2900") ? CSP2900 : CSP889,
+                               args[2], args[3], args[4], args[5]);
+        climbs = (args.length > 6) ? Long.parseLong(args[6]) : 1000000;
+        if (climbs < 1) {
+            System.err.println("climbs must be at least 1");
+            System.exit(1);
+            }
+        if (args.length <= 7) {
+            key = solver.solve(climbs);
+            }
+        else if (args[7].length() == 10) {
+            key = solver.solveOrder(args[7], climbs);
+            }
+        else {
+            key = solver.solve(args[7], climbs);
+            }
+        // The key deciphered afresh must score what its climb said it did.
+        if (solver.keyed(key).score != solver.bestScore) {
+            System.err.println("key " + key + " scores " + solver.keyed(key).score
+                + ", not " + solver.bestScore);
+            System.exit(2);
+            }
+        System.out.println(key + " " + solver.decipher(key));
+        System.err.printf("score %.0f a letter (English %.0f, random %.0f), %d climbs in"
+            + " %d ms%n", solver.score(), solver.english(), solver.random(), solver.climbs(),
+            (System.nanoTime() - start) / 1000000);
+        return;
+        }
+
+    }   // end of ECMSolver
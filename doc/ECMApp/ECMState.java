@@ -0,0 +1,167 @@
+/***********************************************************************
+ * ECMState - The 15 rotor positions of a machine packed in one long.
+ *
+ * SUMMARY:
+ * A RotorCage keeps its positions in the pos field of 15 Rotor objects, so saving and
+ * restoring them means copying arrays.  ECMState packs them as one number in mixed
+ * radix:
+ *
+ *  state = (cipher * 26^5 + control) * 10^5 + index
+ *
+ * where cipher is the cipher positions read as a 5 digit base 26 number, rotor 1 the
+ * most significant digit, control the same for the control bank and index the index
+ * positions read as a 5 digit decimal number.  That is 26^10 * 10^5, about 1.4 * 10^19,
+ * states, which does not fit a signed long but does fit an unsigned one, so the state
+ * is unpacked with Long.divideUnsigned() and Long.remainderUnsigned().  Two states
+ * compare with Long.compareUnsigned() in the order of their cipher, control and index
+ * positions.
+ *
+ * A state is a plain long, it can be kept in a long[] for backtracking or checkpoints
+ * with nothing allocated.  Only the positions are packed, the rotor orders are part of
+ * the key and cipherCount is not part of the cipher.
+ *
+ ***********************************************************************/
+
+public final class ECMState {
+    static final int BANK = 26 * 26 * 26 * 26 * 26;    // positions of a 26 letter bank
+    static final int INDEX = 10 * 10 * 10 * 10 * 10;   // positions of the index bank
+
+    private ECMState() {
+        }
+
+/***********************************************************************
+ * pack - Packs the positions of the three banks, rotor 1 first in each.
+ ***********************************************************************/
+    public static long pack(int cipher[], int control[], int index[]) {
+
+        return((digits(cipher, 26) * BANK + digits(control, 26)) * INDEX
+            + digits(index, 10));
+        }
+
+    static long digits(int pos[], int radix) {
+        long n = 0;
+        int i;
+
+        for (i = 0; i < 5; i++) {
+            if ((pos[i] < 0) || (pos[i] >= radix)) {
+                throw new IllegalArgumentException("position " + pos[i] + " out of range");
+                }
+            n = n * radix + pos[i];
+            }
+        return(n);
+        }
+
+/***********************************************************************
+ * parse - Packs positions given as for RotorCage.set*BankPos(), e.g.
+ * parse("ABCDE", "MNOPQ", "01234").
+ ***********************************************************************/
+    public static long parse(String cipher, String control, String index) {
+        int c[] = new int[5], k[] = new int[5], x[] = new int[5];
+        int i;
+
+        for (i = 0; i < 5; i++) {
+            c[i] = letter(cipher.charAt(i));
+            k[i] = letter(control.charAt(i));
+            x[i] = index.charAt(i) - '0';
+            }
+        return(pack(c, k, x));
+        }
+
+    static int letter(char c) {
+
+        return((c < 256) ? ECMEngine.LETTER_INDEX[c] : -1);
+        }
+
+/***********************************************************************
+ * of - The state of a RotorCage.
+ ***********************************************************************/
+    public static long of(RotorCage cage) {
+        long cipher = 0, control = 0, index = 0;
+        int i;
+
+        for (i = 0; i < 5; i++) {
+            cipher = cipher * 26 + cage.cipherBank[i].pos;
+            control = control * 26 + cage.controlBank[i].pos;
+            index = index * 10 + cage.indexBank[i].pos;
+            }
+        return((cipher * BANK + control) * INDEX + index);
+        }
+
+/***********************************************************************
+ * apply - Sets the rotors of a RotorCage to a state.
+ *
+ * SUMMARY:
+ * The index bank tables are only rebuilt if the index positions change.
+ *
+ ***********************************************************************/
+    public static void apply(long state, RotorCage cage) {
+        long rest = Long.divideUnsigned(state, INDEX);
+        int index = (int) Long.remainderUnsigned(state, INDEX);
+        int control = (int) (rest % BANK);
+        int cipher = (int) (rest / BANK);
+        boolean moved = false;
+        int i, p;
+
+        for (i = 4; i >= 0; i--) {
+            cage.cipherBank[i].pos = cipher % 26;
+            cipher /= 26;
+            cage.controlBank[i].pos = control % 26;
+            control /= 26;
+            p = index % 10;
+            index /= 10;
+            if (cage.indexBank[i].pos != p) {
+                cage.indexBank[i].pos = p;
+                moved = true;
+                }
+            }
+        if (moved) {
+            cage.compileIndexBank();
+            }
+        return;
+        }
+
+/***********************************************************************
+ * cipherPos, controlPos, indexPos - The position of rotor i, 0-4, of a bank.
+ ***********************************************************************/
+    public static int cipherPos(long state, int i) {
+
+        return(digit(Long.divideUnsigned(state, INDEX) / BANK, 26, i));
+        }
+
+    public static int controlPos(long state, int i) {
+
+        return(digit(Long.divideUnsigned(state, INDEX) % BANK, 26, i));
+        }
+
+    public static int indexPos(long state, int i) {
+
+        return(digit(Long.remainderUnsigned(state, INDEX), 10, i));
+        }
+
+    static int digit(long n, int radix, int i) {
+        int k;
+
+        for (k = 4; k > i; k--) {
+            n /= radix;
+            }
+        return((int) (n % radix));
+        }
+
+/***********************************************************************
+ * toString - The positions as "cipher control index", e.g. "ABCDE MNOPQ 01234".
+ ***********************************************************************/
+    public static String toString(long state) {
+        char out[] = new char[17];
+        int i;
+
+        for (i = 0; i < 5; i++) {
+            out[i] = ECMEngine.LETTERS[cipherPos(state, i)];
+            out[6 + i] = ECMEngine.LETTERS[controlPos(state, i)];
+            out[12 + i] = (char) ('0' + indexPos(state, i));
+            }
+        out[5] = ' ';
+        out[11] = ' ';
+        return(new String(out));
+        }
+
+    }   // end of ECMState
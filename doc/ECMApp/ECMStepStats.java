@@ -0,0 +1,186 @@
+/***********************************************************************
+ * ECMStepStats - How the cipher rotors step, over every control and index position.
+ *
+ * SUMMARY:
+ * For a control bank order, an index bank order and a machine, counts for each of
+ * the 10^5 index bank positions how many of the 26^5 control bank positions move 1,
+ * 2, 3, 4 or 5 cipher rotors, and which of the 32 move masks never happen at all.
+ *
+ * That is 1.2 * 10^12 cipherBankMoves(), but the work splits in two.  The control
+ * bank only decides which of the 10 index bank inputs have a current on them, so the
+ * 26^5 control positions are run once, in parallel over the first rotor, into a
+ * histogram of those 1024 input sets.  An index bank position is then a permutation
+ * of the 10 contacts, and through the index to magnet wiring it turns each input set
+ * into a move mask, built up one input at a time from the set with one input less.
+ * So each index position is 1024 table steps, and the 10^5 of them are also run in
+ * parallel.  A configuration takes seconds.
+ *
+ * The output is text, a line for each index position in order:
+ *
+ *  # ECMStepStats controlOrder indexOrder machine
+ *  indexPos moves1 moves2 moves3 moves4 moves5 never
+ *
+ * where movesN is the number of control positions that move N cipher rotors and
+ * never is a 32 bit mask in hex, bit m set if move mask m happens at no control
+ * position.  Bit 0 is always set, some rotor always moves.  A last comment line gives
+ * the masks that never happen at any index position.
+ *
+ * Usage:
+ *  java ECMStepStats controlOrder indexOrder [889|2900] [file]
+ *
+ ***********************************************************************/
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.stream.IntStream;
+
+public class ECMStepStats {
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+    static final int INDEX_POSITIONS = 100000;
+
+    // The control bank contacts each machine puts a current on, see CipherStepper.moves().
+    static final int LIVE[][] = {{5, 6, 7, 8}, {3, 4, 5, 6, 7, 8}};
+
+    final int machine;
+    final String controlOrder, indexOrder;
+    // inputs[s] is the number of control positions that put a current on the set s of
+    // index bank inputs, bit i for input i.
+    final long inputs[] = new long[1024];
+    // moves[p][n] and never[p] for index position p, as in the output.
+    final long moves[][] = new long[INDEX_POSITIONS][6];
+    final int never[] = new int[INDEX_POSITIONS];
+
+
+    public ECMStepStats(String controlOrder, String indexOrder, int machine) {
+        if ((machine != CSP889) && (machine != CSP2900)) {
+            throw new IllegalArgumentException("machine must be CSP889 or CSP2900");
+            }
+        this.machine = machine;
+        this.controlOrder = controlOrder;
+        this.indexOrder = indexOrder;
+        new RotorCage("0N1N2N3N4N", controlOrder, indexOrder);     // checks the orders
+        }
+
+/***********************************************************************
+ * run - Builds the input histogram, then the counts for every index position.
+ ***********************************************************************/
+    public void run() {
+        long parts[][] = new long[26][];
+        int s, p;
+
+        IntStream.range(0, 26).parallel().forEach(first -> parts[first] = inputSets(first));
+        for (p = 0; p < 26; p++) {
+            for (s = 0; s < 1024; s++) {
+                inputs[s] += parts[p][s];
+                }
+            }
+        IntStream.range(0, INDEX_POSITIONS).parallel().forEach(this::indexPosition);
+        return;
+        }
+
+    // The input set histogram for the control positions with the first rotor at first.
+    long[] inputSets(int first) {
+        RotorCage cage = new RotorCage("0N1N2N3N4N", controlOrder, indexOrder);
+        int map[] = (machine == CSP889) ? RotorCage.CONTROL_INDEX_889
+                                        : RotorCage.CONTROL_INDEX_2900;
+        int live[] = LIVE[machine];
+        long count[] = new long[1024];
+        int p1, p2, p3, p4, k, out, set;
+
+        cage.controlBank[0].pos = first;
+        for (p1 = 0; p1 < 26; p1++) {
+            cage.controlBank[1].pos = p1;
+            for (p2 = 0; p2 < 26; p2++) {
+                cage.controlBank[2].pos = p2;
+                for (p3 = 0; p3 < 26; p3++) {
+                    cage.controlBank[3].pos = p3;
+                    for (p4 = 0; p4 < 26; p4++) {
+                        cage.controlBank[4].pos = p4;
+                        set = 0;
+                        for (k = 0; k < live.length; k++) {
+                            out = cage.controlBankPath(live[k]);
+                            // P, Q and R go nowhere on the CSP-2900.
+                            if ((machine == CSP889) || (out < 'P' - 'A') || (out > 'R' - 'A')) {
+                                set |= 1 << map[out];
+                                }
+                            }
+                        count[set]++;
+                        }
+                    }
+                }
+            }
+        return(count);
+        }
+
+    // Fills in moves[p] and never[p] for index position p.
+    void indexPosition(int p) {
+        RotorCage cage = new RotorCage("0N1N2N3N4N", "0N1N2N3N4N", indexOrder);
+        int magnet[] = new int[10];
+        int mask[] = new int[1024];
+        long count[] = new long[32];
+        int i, s, seen = 0;
+
+        cage.setIndexBankPos(String.format("%05d", p));
+        for (i = 0; i < 10; i++) {
+            magnet[i] = 1 << (RotorCage.INDEX_MAG[cage.indexBankPath(i)] - 1);
+            }
+        for (s = 1; s < 1024; s++) {
+            mask[s] = mask[s & (s - 1)] | magnet[Integer.numberOfTrailingZeros(s)];
+            count[mask[s]] += inputs[s];
+            }
+        count[0] += inputs[0];
+        for (s = 0; s < 32; s++) {
+            moves[p][Integer.bitCount(s)] += count[s];
+            if (count[s] != 0) {
+                seen |= 1 << s;
+                }
+            }
+        never[p] = ~seen;
+        return;
+        }
+
+/***********************************************************************
+ * write - Writes the counts as described above.
+ ***********************************************************************/
+    public void write(PrintWriter out) {
+        int p, n, none = -1;
+
+        out.println("# ECMStepStats " + controlOrder + " " + indexOrder + " "
+            + ((machine == CSP889) ? "889" : "2900"));
+        for (p = 0; p < INDEX_POSITIONS; p++) {
+            out.printf("%05d", p);
+            for (n = 1; n <= 5; n++) {
+                out.print(" " + moves[p][n]);
+                }
+            out.printf(" %08x%n", never[p]);
+            none &= never[p];
+            }
+        out.printf("# never at any index position %08x%n", none);
+        out.flush();
+        return;
+        }
+
+    public static void main(String args[]) throws IOException {
+        ECMStepStats stats;
+        PrintWriter out;
+        long start = System.nanoTime();
+
+        if (args.length < 2) {
+            System.err.println("usage: java ECMStepStats controlOrder indexOrder [889|2900] [file]");
+            System.exit(1);
+            }
+        stats = new ECMStepStats(args[0], args[1],
+            ((args.length > 2) && args[2].equals("2900")) ? CSP2900 : CSP889);
+        stats.run();
+        out = new PrintWriter(new BufferedWriter((args.length > 3) ? new FileWriter(args[3])
+                                                 : new OutputStreamWriter(System.out)));
+        stats.write(out);
+        out.close();
+        System.err.println("done in " + (System.nanoTime() - start) / 1000000 + " ms");
+        return;
+        }
+
+    }   // end of ECMStepStats
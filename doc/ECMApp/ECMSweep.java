@@ -0,0 +1,313 @@
+/***********************************************************************
+ * ECMSweep - Resumable known plaintext sweep of the whole key space.
+ *
+ * SUMMARY:
+ * ECMKeySearch finds the cipher bank for one control and index bank hypothesis.
+ * ECMSweep runs it over every hypothesis: the orders, orientations and positions of
+ * the control bank, from the 10 rotors of Rotor.WIRING or of another ECMRotorSet, and
+ * of the index bank, from the 5 rotors of Rotor.INDEXWIRING.  Any of the four may be pinned to one value, and must
+ * be pinned enough for the number of hypotheses to fit in a long.
+ *
+ * Each hypothesis is a work unit, numbered in a fixed mixed radix, from the least
+ * significant digit:
+ *
+ *  index bank positions, index bank orientation, index bank order,
+ *  control bank positions, control bank orientation, control bank order
+ *
+ * leaving out the pinned ones.  Units are run in turn, each spread over all the cores
+ * by ECMKeySearch.  As each one finishes its number and any keys it found are appended
+ * to a journal file and flushed, so killing the process loses at most the unit in
+ * progress.  Run again with the same journal, the units already in it are skipped.
+ * A unit is many seconds of search and a line or two of journal, so the journal costs
+ * nothing measurable.
+ *
+ * The journal is text, one record to a line:
+ *
+ *  # ECMSweep crib cipherText machine controlOrder controlPos indexOrder indexPos [rotors]
+ *  U unit
+ *  H unit cipherOrder cipherPos controlOrder controlPos indexOrder indexPos
+ *
+ * The first line says what sweep the journal is for, a journal for a different sweep
+ * is refused.  rotors, there for any set but the standard one, is a hash of its
+ * wiring, so a journal is not picked up by a sweep of other rotors.  A last line cut short by a crash is ignored.
+ *
+ ***********************************************************************/
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ECMSweep {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final int CSP889 = 0, CSP2900 = 1, CSPNONE = 2;
+    static final String ANY = "*";          // a part of the key that is swept
+
+    static final List<int[]> CONTROL_ORDERS = ECMKeySearch.orders("0123456789");
+    static final List<int[]> INDEX_ORDERS = ECMKeySearch.orders("01234");
+
+    final ECMRotorSet rotors;
+    final String crib, cipherText;
+    final int machine;
+    final String controlOrder, controlPos, indexOrder, indexPos;
+    // The radix of each digit of a unit number, 1 for a pinned part.
+    final long indexPosRadix, indexOrientRadix, indexOrderRadix;
+    final long controlPosRadix, controlOrientRadix, controlOrderRadix;
+    final long units;
+
+
+/***********************************************************************
+ * ECMSweep - Constructor
+ *
+ * SUMMARY:
+ * The control and index banks are given as for RotorCage, or ANY to sweep them.  An
+ * order with a fixed set of rotors and ANY orientation is not supported; sweep the
+ * order or pin it.  The rotor numbers are of rotors, or of Rotor.WIRING if none is
+ * given.
+ *
+ ***********************************************************************/
+    public ECMSweep(String crib, String cipherText, int machine,
+                    String controlOrder, String controlPos,
+                    String indexOrder, String indexPos) {
+        this(ECMRotorSet.STANDARD, crib, cipherText, machine, controlOrder, controlPos,
+             indexOrder, indexPos);
+        }
+
+    public ECMSweep(ECMRotorSet rotors, String crib, String cipherText, int machine,
+                    String controlOrder, String controlPos,
+                    String indexOrder, String indexPos) {
+        long n;
+
+        this.rotors = rotors;
+        this.crib = crib;
+        this.cipherText = cipherText;
+        this.machine = machine;
+        this.controlOrder = controlOrder;
+        this.controlPos = controlPos;
+        this.indexOrder = indexOrder;
+        this.indexPos = indexPos;
+
+        indexPosRadix = indexPos.equals(ANY) ? 100000 : 1;
+        indexOrientRadix = indexOrder.equals(ANY) ? 32 : 1;
+        indexOrderRadix = indexOrder.equals(ANY) ? INDEX_ORDERS.size() : 1;
+        controlPosRadix = controlPos.equals(ANY) ? 26 * 26 * 26 * 26 * 26 : 1;
+        controlOrientRadix = controlOrder.equals(ANY) ? 32 : 1;
+        controlOrderRadix = controlOrder.equals(ANY) ? CONTROL_ORDERS.size() : 1;
+        try {
+            n = Math.multiplyExact(indexPosRadix, indexOrientRadix);
+            n = Math.multiplyExact(n, indexOrderRadix);
+            n = Math.multiplyExact(n, controlPosRadix);
+            n = Math.multiplyExact(n, controlOrientRadix);
+            n = Math.multiplyExact(n, controlOrderRadix);
+            }
+        catch (ArithmeticException e) {
+            throw new IllegalArgumentException("too many units, pin part of the key");
+            }
+        units = n;
+        }
+
+/***********************************************************************
+ * units - The number of work units in the sweep.
+ ***********************************************************************/
+    public long units() {
+        return(units);
+        }
+
+/***********************************************************************
+ * hypothesis - The control and index banks of a unit.
+ *
+ * SUMMARY:
+ * Returns { controlOrder, controlPos, indexOrder, indexPos }.
+ *
+ ***********************************************************************/
+    public String[] hypothesis(long unit) {
+        String out[] = new String[4];
+        long ip, io, ir, cp, co, cr;
+
+        if ((unit < 0) || (unit >= units)) {
+            throw new IndexOutOfBoundsException("unit " + unit);
+            }
+        ip = unit % indexPosRadix;          unit /= indexPosRadix;
+        io = unit % indexOrientRadix;       unit /= indexOrientRadix;
+        ir = unit % indexOrderRadix;        unit /= indexOrderRadix;
+        cp = unit % controlPosRadix;        unit /= controlPosRadix;
+        co = unit % controlOrientRadix;     unit /= controlOrientRadix;
+        cr = unit;
+
+        out[0] = controlOrder.equals(ANY)
+            ? ECMKeySearch.orderString(CONTROL_ORDERS.get((int) cr), (int) co) : controlOrder;
+        out[1] = controlPos.equals(ANY) ? digits(cp, 26, 'A') : controlPos;
+        out[2] = indexOrder.equals(ANY)
+            ? ECMKeySearch.orderString(INDEX_ORDERS.get((int) ir), (int) io) : indexOrder;
+        out[3] = indexPos.equals(ANY) ? digits(ip, 10, '0') : indexPos;
+        return(out);
+        }
+
+    // Five digits of n, most significant first.
+    static String digits(long n, int radix, char zero) {
+        char out[] = new char[5];
+        int i;
+
+        for (i = 4; i >= 0; i--) {
+            out[i] = (char) (zero + n % radix);
+            n /= radix;
+            }
+        return(new String(out));
+        }
+
+/***********************************************************************
+ * header - The first line of the journal for this sweep.
+ ***********************************************************************/
+    String header() {
+        return("# ECMSweep " + crib + " " + cipherText + " "
+            + (machine == CSP2900 ? "2900" : "889") + " "
+            + controlOrder + " " + controlPos + " " + indexOrder + " " + indexPos
+            + ((rotors == ECMRotorSet.STANDARD) ? ""
+                : " " + Integer.toHexString(Arrays.deepHashCode(rotors.wiring))));
+        }
+
+/***********************************************************************
+ * readJournal - The units already done, from the journal if there is one.
+ ***********************************************************************/
+    Set<Long> readJournal(File journal) throws IOException {
+        Set<Long> done = new HashSet<Long>();
+        BufferedReader in;
+        String line, next;
+        boolean complete;
+
+        if (!journal.exists() || (journal.length() == 0)) {
+            return(done);
+            }
+        complete = endsLine(journal);
+        in = new BufferedReader(new FileReader(journal));
+        try {
+            line = in.readLine();
+            if ((line != null) && !line.equals(header())) {
+                throw new IOException(journal + " is the journal of another sweep");
+                }
+            // A last line with no end was cut short, "U 12" may be the start of "U 1234".
+            line = in.readLine();
+            while (line != null) {
+                next = in.readLine();
+                if (line.startsWith("U ") && ((next != null) || complete)) {
+                    try {
+                        done.add(Long.valueOf(line.substring(2)));
+                        }
+                    catch (NumberFormatException e) {
+                        // A line cut short by an earlier crash, spoiled by run().
+                        }
+                    }
+                line = next;
+                }
+            }
+        finally {
+            in.close();
+            }
+        return(done);
+        }
+
+    static boolean endsLine(File journal) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(journal, "r");
+
+        try {
+            in.seek(in.length() - 1);
+            return(in.read() == '\n');
+            }
+        finally {
+            in.close();
+            }
+        }
+
+/***********************************************************************
+ * run - Runs units first to last - 1, skipping those already in the journal.
+ *
+ * SUMMARY:
+ * The keys found are appended to the journal and also printed on System.out.
+ * Returns the number of units run.
+ *
+ ***********************************************************************/
+    public long run(File journal, long first, long last) throws IOException {
+        Set<Long> done = readJournal(journal);
+        boolean fresh = !journal.exists() || (journal.length() == 0);
+        Writer out = new FileWriter(journal, true);
+        String h[];
+        StringBuilder record = new StringBuilder();
+        long unit, count = 0;
+
+        try {
+            if (fresh) {
+                out.write(header() + "\n");
+                out.flush();
+                }
+            else if (!endsLine(journal)) {
+                out.write("!\n");      // spoil and end the line cut short
+                }
+            for (unit = first; unit < last; unit++) {
+                if (done.contains(unit)) {
+                    continue;
+                    }
+                h = hypothesis(unit);
+                record.setLength(0);
+                for (String hit : new ECMKeySearch(rotors, crib, cipherText, machine,
+                                                   h[0], h[1], h[2], h[3]).search()) {
+                    record.append("H ").append(unit).append(' ').append(hit).append(' ')
+                          .append(h[0]).append(' ').append(h[1]).append(' ')
+                          .append(h[2]).append(' ').append(h[3]).append('\n');
+                    }
+                record.append("U ").append(unit).append('\n');
+                System.out.print(record.toString().replace("U " + unit + "\n", ""));
+                out.write(record.toString());
+                out.flush();
+                count++;
+                }
+            }
+        finally {
+            out.close();
+            }
+        return(count);
+        }
+
+/***********************************************************************
+ * main - Command line sweep.
+ *
+ * Usage:
+ *  java ECMSweep [--rotors seed] journal crib cipherText machine controlOrder controlPos
+ *                indexOrder indexPos [first [last]]
+ *
+ * machine is 889 or 2900.  Any of the bank settings may be * to sweep it.  --rotors
+ * sweeps a rotor set made by the internal method from seed, see ECMRotorSet.generate().
+ *
+ ***********************************************************************/
+    public static void main(String args[]) throws IOException {
+        ECMRotorSet rotors = ECMRotorSet.STANDARD;
+        ECMSweep sweep;
+        long first, last, count;
+        long start = System.nanoTime();
+
+        if ((args.length > 1) && args[0].equals("--rotors")) {
+            rotors = ECMRotorSet.generate(Long.parseLong(args[1]));
+            args = Arrays.copyOfRange(args, 2, args.length);
+            }
+        if (args.length < 8) {
+            System.err.println("usage: java ECMSweep [--rotors seed] journal crib cipherText"
+                + " 889|2900 controlOrder controlPos indexOrder indexPos [first [last]]");
+            System.exit(1);
+            }
+        sweep = new ECMSweep(rotors, args[1], args[2], args[3].equals("2900") ? CSP2900 : CSP889,
+                             args[4], args[5], args[6], args[7]);
+        first = (args.length > 8) ? Long.parseLong(args[8]) : 0;
+        last = (args.length > 9) ? Long.parseLong(args[9]) : sweep.units();
+        count = sweep.run(new File(args[0]), first, last);
+        System.err.println(count + " of " + sweep.units() + " units in "
+            + (System.nanoTime() - start) / 1000000 + " ms");
+        return;
+        }
+
+    }   // end of ECMSweep
@@ -0,0 +1,117 @@
+/***********************************************************************
+ * ECMTape - The keyboard and printer conversions of the ECM Mark II.
+ *
+ * SUMMARY:
+ * ECMEngine and ECMSession only see the 26 letters the rotors see.  ECMTape adds what
+ * ECMApp.action() does between the keyboard, the rotors and the paper tape, for text of
+ * any length:
+ *
+ *  Encipher:   Z is converted to X, and space to Z.  Spaces are more important than Z,
+ *              note that the deciphered plaintext can never have a Z.  The cipher
+ *              text is optionally printed in 5 character groups separated by spaces.
+ *  Decipher:   Z is converted to space.  Spaces, the group separators, are ignored.
+ *
+ * Lower case letters are treated as upper case.  Characters the machine has no key
+ * for (and in decipher, anything but letters) are skipped, like the number and dash
+ * keys during encipher or decipher.
+ *
+ * The text is translated in pieces through a scratch buffer of BUFFER letters, so the
+ * memory used does not depend on the length of the message.  The grouping count is
+ * carried from one piece to the next, so a message may be split anywhere.  This is
+ * shared by the stream, reader and writer filters.
+ *
+ ***********************************************************************/
+class ECMTape {
+    static final boolean DECRYPT = true, ENCRYPT = false;
+    static final int BUFFER = 4096;         // letters translated at a time
+    static final int GROUP = 5;             // letters in a cipher text group
+
+    final ECMCipher engine;
+    final boolean direction;
+    final boolean grouped;                  // print the cipher text in groups?
+    long printed = 0;                       // letters printed, used to make the groups
+    byte letters[] = new byte[BUFFER];      // the letters sent through the rotors
+
+
+    ECMTape(ECMCipher engine, boolean direction, boolean grouped) {
+        this.engine = engine;
+        this.direction = direction;
+        this.grouped = grouped && (direction == ENCRYPT);
+        }
+
+/***********************************************************************
+ * maxOutput - The most characters translate() can write for len characters in.
+ ***********************************************************************/
+    static int maxOutput(int len) {
+        return(len + len / GROUP + 1);
+        }
+
+/***********************************************************************
+ * keyboard - Converts a character to the letter sent to the rotors, -1 if none.
+ ***********************************************************************/
+    int keyboard(int c) {
+        int letter = (c < 256) ? ECMEngine.LETTER_INDEX[c] : -1;
+
+        if (direction == ENCRYPT) {
+            if (letter == 'Z' - 'A') {
+                return('X');        // Convert Z to X. There are only 26 cipher text characters.
+                }
+            if (c == ' ') {
+                return('Z');        // Convert Space Bar to Z.
+                }
+            }
+        return((letter < 0) ? -1 : 'A' + letter);
+        }
+
+/***********************************************************************
+ * translate - Enciphers or deciphers a piece of text.
+ *
+ * SUMMARY:
+ * Up to BUFFER characters starting at in[off] are read and the printed text is written
+ * starting at out[outOff], which must have room for maxOutput(len) characters.
+ * Returns the number of characters written.
+ *
+ ***********************************************************************/
+    int translate(char in[], int off, int len, char out[], int outOff) {
+        int i, c, n = 0, o = outOff;
+
+        for (i = 0; i < len; i++) {
+            c = keyboard(in[off + i]);
+            if (c >= 0) {
+                letters[n++] = (byte) c;
+                }
+            }
+        engine.crypt(direction, letters, 0, n, letters, 0);
+        for (i = 0; i < n; i++) {
+            c = letters[i];
+            if (grouped && (printed != 0) && ((printed % GROUP) == 0)) {
+                out[o++] = ' ';
+                }
+            printed++;
+            out[o++] = ((direction == DECRYPT) && (c == 'Z')) ? ' ' : (char) c;
+            }
+        return(o - outOff);
+        }
+
+    int translate(byte in[], int off, int len, byte out[], int outOff) {
+        int i, c, n = 0, o = outOff;
+
+        for (i = 0; i < len; i++) {
+            c = keyboard(in[off + i] & 0xff);
+            if (c >= 0) {
+                letters[n++] = (byte) c;
+                }
+            }
+        engine.crypt(direction, letters, 0, n, letters, 0);
+        for (i = 0; i < n; i++) {
+            c = letters[i];
+            if (grouped && (printed != 0) && ((printed % GROUP) == 0)) {
+                out[o++] = ' ';
+                }
+            printed++;
+            out[o++] = ((direction == DECRYPT) && (c == 'Z')) ? (byte) ' ' : (byte) c;
+            }
+        return(o - outOff);
+        }
+
+    }   // end of ECMTape
@@ -0,0 +1,131 @@
+/***********************************************************************
+ * ECMVectorBatch - ECMBatch on the Vector API.
+ *
+ * SUMMARY:
+ * Runs ECMBatch.cycle() on as many lanes at a time as an IntVector holds, up to 8.
+ * It goes a rotor at a time across the whole batch rather than a lane at a time
+ * through every rotor: for each rotor the table indexes tab + pos * 26 + c of all the
+ * lanes are worked out with vector arithmetic into index[], then gathered from the
+ * shared rotor tables into letter[].  Each loop is small enough for C2 to keep its
+ * vectors in registers and turn the gather into a hardware one; a lane at a time
+ * through everything was ten times slower than ECMBatch.  The stepping is done with
+ * vector masks: the magnets fired are ORed together, each cipher rotor adds its turn
+ * where its magnet bit is set, and the control rotors compare their positions with O.
+ * The lanes left over after the last full vector are done by ECMBatch.
+ *
+ * This is the only class that uses jdk.incubator.vector.  It needs
+ *
+ *  javac --add-modules jdk.incubator.vector
+ *  java --add-modules jdk.incubator.vector
+ *
+ * and is only ever loaded by ECMBatch, which falls back to its own loops when it cannot
+ * be, see ECMBatch.vectorAvailable().
+ *
+ ***********************************************************************/
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class ECMVectorBatch extends ECMBatch {
+    // No wider than 256 bits, the JDK 17 C2 compiler crashes on 512 bit gathers with an
+    // index map.
+    static final VectorSpecies<Integer> SPECIES =
+        (IntVector.SPECIES_PREFERRED.vectorBitSize() > 256) ? IntVector.SPECIES_256
+                                                             : IntVector.SPECIES_PREFERRED;
+
+    final int index[];          // the gather index map, a table index for each lane
+    final int letter[];         // the current through each lane
+    final int mask[];           // the magnets fired on each lane
+    final int laneBase[];       // lane * 26, where a lane's row of mag[] starts
+
+
+    public ECMVectorBatch(int machine, int lanes) {
+        this(ECMRotorSet.STANDARD, machine, lanes);
+        }
+
+    public ECMVectorBatch(ECMRotorSet rotors, int machine, int lanes) {
+        super(rotors, machine, lanes);
+        int lane;
+
+        index = new int[lanes];
+        letter = new int[lanes];
+        mask = new int[lanes];
+        laneBase = new int[lanes];
+        for (lane = 0; lane < lanes; lane++) {
+            laneBase[lane] = lane * 26;
+            }
+        }
+
+    // letter[lane] = tab[base[lane] + pos[lane] * 26 + c[lane]] for lanes from..bound - 1.
+    void gather(int tab[], int base[], int pos[], int c[], int from, int bound) {
+        int lane;
+
+        for (lane = from; lane < bound; lane += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, base, lane)
+                .add(IntVector.fromArray(SPECIES, pos, lane).mul(26))
+                .add(IntVector.fromArray(SPECIES, c, lane)).intoArray(index, lane);
+            IntVector.fromArray(SPECIES, tab, 0, index, lane).intoArray(letter, lane);
+            }
+        return;
+        }
+
+    // pos = (pos + turn) % 26 on the lanes of move.
+    static void turn(int pos[], int turn[], VectorMask<Integer> move, int lane) {
+        IntVector p = IntVector.fromArray(SPECIES, pos, lane)
+            .add(IntVector.fromArray(SPECIES, turn, lane), move);
+
+        p.sub(26, p.compare(VectorOperators.GE, 26)).intoArray(pos, lane);
+        return;
+        }
+
+    void cycle(boolean direction, int in[], int out[], int from, int to) {
+        int lane, r, k, bound = from + SPECIES.loopBound(to - from);
+        int tab[] = (direction == ENCRYPT) ? cipherEnc : cipherDec;
+        IntVector m, fast, medium;
+        VectorMask<Integer> mediumMove;
+
+        for (r = 0; r <= 4; r++) {
+            k = (direction == ENCRYPT) ? r : 4 - r;
+            gather(tab, cipherTab[k], cipherPos[k], (r == 0) ? in : letter, from, bound);
+            }
+        System.arraycopy(letter, from, out, from, bound - from);
+
+        for (k = 0; k < entry.length; k++) {
+            gather(control, controlTab[3], controlPos[3], entry[k], from, bound);
+            for (r = 2; r >= 1; r--) {
+                gather(control, controlTab[r], controlPos[r], letter, from, bound);
+                }
+            for (lane = from; lane < bound; lane += SPECIES.length()) {
+                IntVector.fromArray(SPECIES, laneBase, lane)
+                    .add(IntVector.fromArray(SPECIES, letter, lane)).intoArray(index, lane);
+                m = IntVector.fromArray(SPECIES, mag, 0, index, lane);
+                if (k > 0) {
+                    m = m.or(IntVector.fromArray(SPECIES, mask, lane));
+                    }
+                m.intoArray(mask, lane);
+                }
+            }
+
+        for (lane = from; lane < bound; lane += SPECIES.length()) {
+            m = IntVector.fromArray(SPECIES, mask, lane);
+            for (r = 0; r < 5; r++) {
+                turn(cipherPos[r], cipherTurn[r], m.and(1 << r).compare(VectorOperators.NE, 0),
+                     lane);
+                }
+
+            // The control rotors, as RotorCage.controlBankUpdate().
+            fast = IntVector.fromArray(SPECIES, controlPos[2], lane);
+            medium = IntVector.fromArray(SPECIES, controlPos[3], lane);
+            mediumMove = fast.compare(VectorOperators.EQ, (int) 'O' - 'A');
+            turn(controlPos[1], controlTurn[1],
+                 mediumMove.and(medium.compare(VectorOperators.EQ, (int) 'O' - 'A')), lane);
+            turn(controlPos[3], controlTurn[3], mediumMove, lane);
+            turn(controlPos[2], controlTurn[2], SPECIES.maskAll(true), lane);
+            }
+        super.cycle(direction, in, out, bound, to);
+        return;
+        }
+
+    }   // end of ECMVectorBatch
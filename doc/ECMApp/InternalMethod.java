@@ -0,0 +1,221 @@
+/***********************************************************************
+ * InternalMethod - Rotor wiring by the internal method, a port of
+ * internal_method/internal_method.h.
+ *
+ * SUMMARY:
+ * A wiring of n contacts is a permutation perm[] with perm[i] = (i + diff[i]) mod n.
+ * The internal method asks for the diffs to be all different as well as the perm,
+ * so that the rotor's permutation at each position is as different as can be from
+ * its permutation at every other position.  For odd n that is possible; for even n
+ * one diff has to be used twice and another not at all.
+ *
+ * The diffs are chosen one at a time by backtracking, at each step from the diffs
+ * still consistent with those chosen so far, picked at random, exactly as the C++
+ * version does.  For even n the last diff is allowed to repeat one already chosen,
+ * and the diffs are then rotated by a random amount so the repeated pair falls
+ * anywhere.
+ *
+ * generate() makes any number of wirings in parallel, each thread with its own
+ * SplittableRandom split from one seed, so a run may be repeated.  rotorSet() lays
+ * out a set of 26 contact wirings as Rotor.WIRING, for RotorCage, CipherRotor and
+ * ControlRotor.
+ *
+ * Usage:
+ *  java InternalMethod [size] [count] [seed]
+ *
+ ***********************************************************************/
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+public class InternalMethod {
+    final int size;         // the number of contacts
+    int j;                  // the number of diffs chosen, less one; size - 1 on success
+    long i;                 // the number of iterations
+    int diff[];             // the chosen diffs, null on failure
+    int perm[];             // the resulting permutation, null on failure
+
+
+/***********************************************************************
+ * InternalMethod - Constructor
+ *
+ * SUMMARY:
+ * Builds a wiring of size contacts, by backtracking with random choices.
+ *
+ ***********************************************************************/
+    public InternalMethod(int size, SplittableRandom random) {
+        int chosen[] = new int[size];
+        // available[j][0..count[j]) are the diffs still to be tried at step j.
+        int available[][] = new int[size][size];
+        int count[] = new int[size];
+        boolean used[] = new boolean[size];     // diffs already chosen
+        boolean taken[] = new boolean[size];    // perm values already used
+        int k, l, c, n;
+
+        if (size < 1) {
+            throw new IllegalArgumentException("size " + size);
+            }
+        this.size = size;
+        for (k = 0; k < size; k++) {
+            available[0][k] = k;
+            }
+        count[0] = size;
+        j = 0;
+
+        for (i = 0; (j >= 0) && (j < size); i++) {
+            // At this point every entry in available[j] should be okay.
+            if (count[j] == 0) {
+                j--;
+                continue;
+                }
+            // Pick one of the available at random as the next chosen.
+            k = random.nextInt(count[j]);
+            chosen[j] = available[j][k];
+            available[j][k] = available[j][--count[j]];
+            if (j == size - 1) {
+                break;
+                }
+
+            // Build the available choices for the next step.  The diffs already chosen
+            // are left out, except at the last step for an even size, and so are those
+            // that would give a perm already used.
+            for (k = 0; k < size; k++) {
+                used[k] = false;
+                taken[k] = false;
+                }
+            for (l = 0; l <= j; l++) {
+                if ((size % 2 == 1) || (j != size - 2)) {
+                    used[chosen[l]] = true;
+                    }
+                taken[(chosen[l] + l) % size] = true;
+                }
+            n = 0;
+            for (c = 0; c < size; c++) {
+                if (!used[c] && !taken[(c + j + 1) % size]) {
+                    available[j + 1][n++] = c;
+                    }
+                }
+            count[j + 1] = n;
+            if (n > 0) {
+                j++;
+                }
+            else if (count[j] == 0) {
+                j--;
+                }
+            }
+
+        if (j == size - 1) {
+            diff = new int[size];
+            if (size % 2 == 0) {
+                // Move the duplicated entry to a random location.
+                k = random.nextInt(size);
+                for (l = 0; l < size; l++) {
+                    diff[l] = chosen[mod(k + l, size)];
+                    }
+                }
+            else {
+                System.arraycopy(chosen, 0, diff, 0, size);
+                }
+            perm = new int[size];
+            for (l = 0; l < size; l++) {
+                perm[l] = mod(diff[l] + l, size);
+                }
+            }
+        }
+
+    static int mod(int a, int b) {
+        int out = a % b;
+
+        if (out < 0) {
+            out += b;
+            }
+        return(out);
+        }
+
+    public boolean succeeded() {
+        return(perm != null);
+        }
+
+    public int[] perm() {
+        return(perm);
+        }
+
+    public long iterations() {
+        return(i);
+        }
+
+/***********************************************************************
+ * generate - count wirings of size contacts, made in parallel.
+ ***********************************************************************/
+    public static int[][] generate(int size, int count, long seed) {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final SplittableRandom random[] = new SplittableRandom[threads];
+        final int out[][] = new int[count][];
+        int t;
+
+        random[0] = new SplittableRandom(seed);
+        for (t = 1; t < threads; t++) {
+            random[t] = random[0].split();
+            }
+        // Thread t makes wirings t, t + threads, t + 2 * threads, ...
+        IntStream.range(0, threads).parallel().forEach(thread -> {
+            int w;
+
+            for (w = thread; w < count; w += threads) {
+                do {
+                    out[w] = new InternalMethod(size, random[thread]).perm();
+                    } while (out[w] == null);
+                }
+            });
+        return(out);
+        }
+
+/***********************************************************************
+ * rotorSet - A set of rotors of 26 contacts, laid out as Rotor.WIRING.
+ *
+ * SUMMARY:
+ * Each row is the letters 'A' to 'Z' the contacts are wired to.  The set can be given
+ * to RotorCage in place of Rotor.WIRING, or a row to CipherRotor or ControlRotor.
+ *
+ ***********************************************************************/
+    public static int[][] rotorSet(int rotors, long seed) {
+        int out[][] = generate(26, rotors, seed);
+        int w, c;
+
+        for (w = 0; w < rotors; w++) {
+            for (c = 0; c < 26; c++) {
+                out[w][c] += 'A';
+                }
+            }
+        return(out);
+        }
+
+/***********************************************************************
+ * main - Prints count wirings as a Java table, and the rate they were made at.
+ ***********************************************************************/
+    public static void main(String args[]) {
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : 26;
+        int count = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : System.nanoTime();
+        long start = System.nanoTime(), elapsed;
+        int wiring[][] = generate(size, count, seed);
+        StringBuilder out = new StringBuilder();
+        int w, c;
+
+        elapsed = System.nanoTime() - start;
+        out.append("// rotor wiring generated by the internal method, size " + size + "\n{\n");
+        for (w = 0; w < count; w++) {
+            out.append("    {");
+            for (c = 0; c < size; c++) {
+                out.append(wiring[w][c]).append((c == size - 1) ? "}" : ",");
+                }
+            out.append((w == count - 1) ? "\n" : ",\n");
+            }
+        out.append("}\n");
+        System.out.print(out);
+        System.err.printf("%d wirings in %d ms, %.0f a second%n", count, elapsed / 1000000,
+                          count * 1e9 / elapsed);
+        return;
+        }
+
+    }   // end of InternalMethod
@@ -0,0 +1,105 @@
+/***********************************************************************
+ * SigabaInputStream - An InputStream filter that enciphers or deciphers what is read.
+ *
+ * SUMMARY:
+ * Bytes are read from the underlying stream ECMTape.BUFFER at a time, enciphered or
+ * deciphered with the keyboard and printer conversions of ECMTape, and handed out from
+ * a buffer of printed text.  Each byte is one character in US-ASCII.  Bytes the machine
+ * skips never appear, so a read may consume more input than it returns.  mark() and
+ * reset() are not supported.
+ *
+ ***********************************************************************/
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class SigabaInputStream extends FilterInputStream {
+    final ECMTape tape;
+    byte raw[] = new byte[ECMTape.BUFFER];      // bytes read, before translation
+    byte printed[] = new byte[ECMTape.maxOutput(ECMTape.BUFFER)];
+    int pos = 0, limit = 0;                     // printed[pos..limit) is still to be read
+    byte one[] = new byte[1];
+
+
+/***********************************************************************
+ * SigabaInputStream - Constructor
+ *
+ * SUMMARY:
+ * direction is ECMEngine.ENCRYPT or DECRYPT.  If grouped, the cipher text is read in
+ * 5 letter groups.
+ *
+ ***********************************************************************/
+    public SigabaInputStream(InputStream in, ECMEngine engine, boolean direction, boolean grouped) {
+        super(in);
+        tape = new ECMTape(engine, direction, grouped);
+        }
+
+    public int read() throws IOException {
+        return((read(one, 0, 1) < 0) ? -1 : one[0] & 0xff);
+        }
+
+    public int read(byte b[]) throws IOException {
+        return(read(b, 0, b.length));
+        }
+
+    public int read(byte b[], int off, int len) throws IOException {
+        int n;
+
+        ECMEngine.checkRange(b.length, off, len);
+        if (len == 0) {
+            return(0);
+            }
+        if (!fill()) {
+            return(-1);
+            }
+        n = Math.min(len, limit - pos);
+        System.arraycopy(printed, pos, b, off, n);
+        pos += n;
+        return(n);
+        }
+
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        int k;
+
+        while ((skipped < n) && fill()) {
+            k = (int) Math.min(n - skipped, limit - pos);
+            pos += k;
+            skipped += k;
+            }
+        return(skipped);
+        }
+
+    public int available() throws IOException {
+        return(limit - pos);
+        }
+
+    public boolean markSupported() {
+        return(false);
+        }
+
+    public void mark(int readlimit) {
+        return;
+        }
+
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+        }
+
+    // Makes sure there is printed text to hand out, false at the end of the input.
+    boolean fill() throws IOException {
+        int n;
+
+        while (pos == limit) {
+            n = in.read(raw, 0, raw.length);
+            if (n < 0) {
+                return(false);
+                }
+            limit = tape.translate(raw, 0, n, printed, 0);
+            pos = 0;
+            }
+        return(true);
+        }
+
+    }   // end of SigabaInputStream
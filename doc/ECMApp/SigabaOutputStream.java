@@ -0,0 +1,91 @@
+/***********************************************************************
+ * SigabaOutputStream - An OutputStream filter that enciphers or deciphers what is written.
+ *
+ * SUMMARY:
+ * Bytes written are collected in a buffer of ECMTape.BUFFER bytes, which is
+ * enciphered or deciphered with the keyboard and printer conversions of ECMTape and
+ * written to the underlying stream each time it fills, and on flush() and close().
+ * Each byte is one character in US-ASCII.  The engine is left positioned after the
+ * last byte written.
+ *
+ ***********************************************************************/
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class SigabaOutputStream extends FilterOutputStream {
+    final ECMTape tape;
+    byte pending[] = new byte[ECMTape.BUFFER];  // bytes not yet translated
+    int count = 0;                              // number of pending bytes
+    byte printed[] = new byte[ECMTape.maxOutput(ECMTape.BUFFER)];
+
+
+/***********************************************************************
+ * SigabaOutputStream - Constructor
+ *
+ * SUMMARY:
+ * direction is ECMEngine.ENCRYPT or DECRYPT.  If grouped, the cipher text is written in
+ * 5 letter groups.
+ *
+ ***********************************************************************/
+    public SigabaOutputStream(OutputStream out, ECMEngine engine, boolean direction, boolean grouped) {
+        super(out);
+        tape = new ECMTape(engine, direction, grouped);
+        }
+
+    public void write(int c) throws IOException {
+        if (count == pending.length) {
+            drain();
+            }
+        pending[count++] = (byte) c;
+        return;
+        }
+
+    public void write(byte b[]) throws IOException {
+        write(b, 0, b.length);
+        return;
+        }
+
+    public void write(byte b[], int off, int len) throws IOException {
+        int n;
+
+        ECMEngine.checkRange(b.length, off, len);
+        while (len > 0) {
+            if (count == pending.length) {
+                drain();
+                }
+            n = Math.min(len, pending.length - count);
+            System.arraycopy(b, off, pending, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            }
+        return;
+        }
+
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+        return;
+        }
+
+    public void close() throws IOException {
+        drain();
+        out.close();
+        return;
+        }
+
+    // Translates the pending bytes and writes them out.
+    void drain() throws IOException {
+        int n;
+
+        if (count > 0) {
+            n = tape.translate(pending, 0, count, printed, 0);
+            count = 0;
+            out.write(printed, 0, n);
+            }
+        return;
+        }
+
+    }   // end of SigabaOutputStream
@@ -0,0 +1,100 @@
+/***********************************************************************
+ * SigabaReader - A Reader filter that enciphers or deciphers what is read.
+ *
+ * SUMMARY:
+ * Characters are read from the underlying Reader ECMTape.BUFFER at a time, enciphered
+ * or deciphered with the keyboard and printer conversions of ECMTape, and handed out
+ * from a buffer of printed text.  Characters the machine skips never appear, so a read
+ * may consume more input than it returns.  mark() and reset() are not supported.
+ *
+ ***********************************************************************/
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+public class SigabaReader extends FilterReader {
+    final ECMTape tape;
+    char raw[] = new char[ECMTape.BUFFER];      // characters read, before translation
+    char printed[] = new char[ECMTape.maxOutput(ECMTape.BUFFER)];
+    int pos = 0, limit = 0;                     // printed[pos..limit) is still to be read
+    char one[] = new char[1];
+
+
+/***********************************************************************
+ * SigabaReader - Constructor
+ *
+ * SUMMARY:
+ * direction is ECMEngine.ENCRYPT or DECRYPT.  If grouped, the cipher text is read in
+ * 5 letter groups.
+ *
+ ***********************************************************************/
+    public SigabaReader(Reader in, ECMEngine engine, boolean direction, boolean grouped) {
+        super(in);
+        tape = new ECMTape(engine, direction, grouped);
+        }
+
+    public int read() throws IOException {
+        return((read(one, 0, 1) < 0) ? -1 : one[0]);
+        }
+
+    public int read(char cbuf[], int off, int len) throws IOException {
+        int n;
+
+        ECMEngine.checkRange(cbuf.length, off, len);
+        if (len == 0) {
+            return(0);
+            }
+        if (!fill()) {
+            return(-1);
+            }
+        n = Math.min(len, limit - pos);
+        System.arraycopy(printed, pos, cbuf, off, n);
+        pos += n;
+        return(n);
+        }
+
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        int k;
+
+        while ((skipped < n) && fill()) {
+            k = (int) Math.min(n - skipped, limit - pos);
+            pos += k;
+            skipped += k;
+            }
+        return(skipped);
+        }
+
+    public boolean ready() throws IOException {
+        return((pos < limit) || in.ready());
+        }
+
+    public boolean markSupported() {
+        return(false);
+        }
+
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+        }
+
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+        }
+
+    // Makes sure there is printed text to hand out, false at the end of the input.
+    boolean fill() throws IOException {
+        int n;
+
+        while (pos == limit) {
+            n = in.read(raw, 0, raw.length);
+            if (n < 0) {
+                return(false);
+                }
+            limit = tape.translate(raw, 0, n, printed, 0);
+            pos = 0;
+            }
+        return(true);
+        }
+
+    }   // end of SigabaReader
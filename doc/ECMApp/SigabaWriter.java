@@ -0,0 +1,102 @@
+/***********************************************************************
+ * SigabaWriter - A Writer filter that enciphers or deciphers what is written.
+ *
+ * SUMMARY:
+ * Characters written are collected in a buffer of ECMTape.BUFFER characters, which is
+ * enciphered or deciphered with the keyboard and printer conversions of ECMTape and
+ * written to the underlying Writer each time it fills, and on flush() and close().
+ * The engine is left positioned after the last character written.
+ *
+ ***********************************************************************/
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+public class SigabaWriter extends FilterWriter {
+    final ECMTape tape;
+    char pending[] = new char[ECMTape.BUFFER];  // characters not yet translated
+    int count = 0;                              // number of pending characters
+    char printed[] = new char[ECMTape.maxOutput(ECMTape.BUFFER)];
+
+
+/***********************************************************************
+ * SigabaWriter - Constructor
+ *
+ * SUMMARY:
+ * direction is ECMEngine.ENCRYPT or DECRYPT.  If grouped, the cipher text is written in
+ * 5 letter groups.
+ *
+ ***********************************************************************/
+    public SigabaWriter(Writer out, ECMEngine engine, boolean direction, boolean grouped) {
+        super(out);
+        tape = new ECMTape(engine, direction, grouped);
+        }
+
+    public void write(int c) throws IOException {
+        if (count == pending.length) {
+            drain();
+            }
+        pending[count++] = (char) c;
+        return;
+        }
+
+    public void write(char cbuf[], int off, int len) throws IOException {
+        int n;
+
+        ECMEngine.checkRange(cbuf.length, off, len);
+        while (len > 0) {
+            if (count == pending.length) {
+                drain();
+                }
+            n = Math.min(len, pending.length - count);
+            System.arraycopy(cbuf, off, pending, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            }
+        return;
+        }
+
+    public void write(String str, int off, int len) throws IOException {
+        int n;
+
+        ECMEngine.checkRange(str.length(), off, len);
+        while (len > 0) {
+            if (count == pending.length) {
+                drain();
+                }
+            n = Math.min(len, pending.length - count);
+            str.getChars(off, off + n, pending, count);
+            count += n;
+            off += n;
+            len -= n;
+            }
+        return;
+        }
+
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+        return;
+        }
+
+    public void close() throws IOException {
+        drain();
+        out.close();
+        return;
+        }
+
+    // Translates the pending characters and writes them out.
+    void drain() throws IOException {
+        int n;
+
+        if (count > 0) {
+            n = tape.translate(pending, 0, count, printed, 0);
+            count = 0;
+            out.write(printed, 0, n);
+            }
+        return;
+        }
+
+    }   // end of SigabaWriter